@@ -0,0 +1,168 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.api;
+
+import lombok.val;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import net.minecraft.block.Block;
+
+import java.util.Arrays;
+
+/**
+ * This is an API class covered by the additional permissions in the license.
+ * <p>
+ * The block changes of a single chunk, as sent in one multi-block update. The data is stored as columns: the positions,
+ * the vanilla block and metadata, and one column per {@link DataManager.BulkBlockPacketDataManager}, which the managers
+ * attach with {@link #setColumn}.
+ *
+ * @author FalsePattern
+ * @version 0.8.0
+ * @since 0.8.0
+ */
+@ApiStatus.NonExtendable
+public final class BlockChangeBatch {
+    private static final Object[] NO_COLUMNS = new Object[0];
+
+    private final int chunkX;
+    private final int chunkZ;
+    private final short[] positions;
+    private final Block[] blocks;
+    private final int[] metadata;
+    private Object[] columnKeys = NO_COLUMNS;
+    private Object[] columns = NO_COLUMNS;
+
+    /**
+     * @param positions The changed positions, packed as {@code x << 12 | z << 8 | y}, in chunk-local coordinates.
+     */
+    @ApiStatus.Internal
+    public BlockChangeBatch(int chunkX, int chunkZ, short[] positions) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.positions = positions;
+        this.blocks = new Block[positions.length];
+        this.metadata = new int[positions.length];
+    }
+
+    @Contract(pure = true)
+    public int chunkX() {
+        return chunkX;
+    }
+
+    @Contract(pure = true)
+    public int chunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * @return The amount of changed blocks.
+     */
+    @Contract(pure = true)
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * @return The packed position of the i-th change, see {@link #BlockChangeBatch(int, int, short[])}.
+     */
+    @Contract(pure = true)
+    public short position(int i) {
+        return positions[i];
+    }
+
+    /**
+     * @return The chunk-local X coordinate of the i-th change.
+     */
+    @Contract(pure = true)
+    public int x(int i) {
+        return positions[i] >> 12 & 0xf;
+    }
+
+    @Contract(pure = true)
+    public int y(int i) {
+        return positions[i] & 0xff;
+    }
+
+    /**
+     * @return The chunk-local Z coordinate of the i-th change.
+     */
+    @Contract(pure = true)
+    public int z(int i) {
+        return positions[i] >> 8 & 0xf;
+    }
+
+    @Contract(pure = true)
+    public Block block(int i) {
+        return blocks[i];
+    }
+
+    public void setBlock(int i, Block block) {
+        blocks[i] = block;
+    }
+
+    @Contract(pure = true)
+    public int metadata(int i) {
+        return metadata[i];
+    }
+
+    public void setMetadata(int i, int meta) {
+        metadata[i] = meta;
+    }
+
+    /**
+     * @param key Usually the manager that owns the column.
+     *
+     * @return The column stored under the given key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    @Contract(pure = true)
+    @Nullable
+    public <T> T getColumn(Object key) {
+        for (int i = 0; i < columnKeys.length; i++) {
+            if (columnKeys[i] == key) {
+                return (T) columns[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores a column under the given key, replacing the previous one. Columns are usually arrays with {@link #size()}
+     * elements.
+     */
+    public void setColumn(Object key, Object column) {
+        for (int i = 0; i < columnKeys.length; i++) {
+            if (columnKeys[i] == key) {
+                columns[i] = column;
+                return;
+            }
+        }
+        val length = columnKeys.length;
+        columnKeys = Arrays.copyOf(columnKeys, length + 1);
+        columns = Arrays.copyOf(columns, length + 1);
+        columnKeys[length] = key;
+        columns[length] = column;
+    }
+}
@@ -81,6 +81,34 @@ public interface DataManager {
         @Contract(pure = true)
         int maxPacketSize();
 
+        /**
+         * @return The exact amount of bytes {@link #writeToBuffer(Chunk, int, boolean, ByteBuffer)} will write with the
+         * same arguments, or -1 if it is not known in advance.
+         *
+         * @implSpec When every registered manager knows its size, chunk data is written straight into an exactly sized packet
+         * array instead of going through a {@link #maxPacketSize()} sized scratch buffer and a copy.
+         * Called right before every {@link #writeToBuffer(Chunk, int, boolean, ByteBuffer)}, so it should be cheap.
+         * @since 0.8.0
+         */
+        @Contract(pure = true)
+        default int packetSize(Chunk chunk, int subChunkMask, boolean forceUpdate) {
+            return -1;
+        }
+
+        /**
+         * @return True if your packet data only changes together with the blocks, metadata, light or biomes of the
+         * chunk, when the chunk gets marked as modified, or when you call {@link DataRegistry#markDirty}.
+         *
+         * @implSpec Chunk payloads are only shared between the packets of different players while every registered
+         * manager returns true, otherwise the data is serialized again for every packet.
+         * Only called ONCE, during registration!
+         * @since 0.8.0
+         */
+        @Contract(pure = true)
+        default boolean stampedPacketData() {
+            return false;
+        }
+
         /**
          * Serializes your data into a packet.
          *
@@ -172,6 +200,45 @@ public interface DataManager {
         void readBlockPacketFromBuffer(S23PacketBlockChange packet, PacketBuffer buffer) throws IOException;
     }
 
+    /**
+     * Columnar variant of {@link BlockPacketDataManager} for multi-block updates. Instead of once per changed block,
+     * these methods are called once with all the changes of a chunk, and your data for all of them is written as one
+     * column. Single block updates still go through the {@link BlockPacketDataManager} methods.
+     * <p>
+     * Managers that only implement {@link BlockPacketDataManager} keep working, they are called once per changed block.
+     *
+     * @author FalsePattern
+     * @version 0.8.0
+     * @since 0.8.0
+     */
+    interface BulkBlockPacketDataManager extends BlockPacketDataManager {
+        /**
+         * Captures your data for every change in the batch, usually into a column set with
+         * {@link BlockChangeBatch#setColumn}. Called on the server thread.
+         */
+        @Contract(mutates = "param2")
+        void writeBlocksToBatch(Chunk chunk, BlockChangeBatch batch);
+
+        /**
+         * Applies your data for every change in the batch to the chunk. Called on the client thread, after the vanilla
+         * blocks and metadata of the batch have been placed.
+         */
+        @Contract(mutates = "param1")
+        void readBlocksFromBatch(Chunk chunk, BlockChangeBatch batch);
+
+        /**
+         * Serializes your column into a buffer.
+         */
+        @Contract(mutates = "param2")
+        void writeBatchToBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException;
+
+        /**
+         * Deserializes your column from a buffer.
+         */
+        @Contract(mutates = "param1,param2")
+        void readBatchFromBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException;
+    }
+
     /**
      * The common superinterface for RootDataManager and SubChunkDataManager.
      * Contains version information and messages for users attempting to upgrade/remove versions.
@@ -243,7 +310,8 @@ public interface DataManager {
          * Deserializes your data from an NBT tag. This is used when loading the chunk from disk.
          * The NBT *may* be null if the chunk was saved before this manager was registered
          * (e.g., loading save before the mod was added), and the manager is not {@link #chunkPrivilegedAccess() privileged}.
-         * In this case, you should initialize the data to a sane default.
+         * In this case, you should initialize the data to a sane default. Missing data is passed as an empty compound
+         * shared between managers, which ignores writes.
          */
         @Contract(mutates = "param1")
         void readChunkFromNBT(Chunk chunk, NBTTagCompound nbt);
@@ -280,6 +348,20 @@ public interface DataManager {
             return false;
         }
 
+        /**
+         * If true, {@link #readSubChunkFromNBT} may be called for different subChunks of the same chunk at the same
+         * time, from different threads. Only return true if your manager doesn't touch anything shared, other than the
+         * subChunk and its nbt tag.
+         *
+         * @implNote Sections are only decoded in parallel if every registered SubChunkDataManager returns true.
+         * Only called ONCE, during registration!
+         * @since 0.8.0
+         */
+        @Contract(pure = true)
+        default boolean concurrentSubChunkReads() {
+            return false;
+        }
+
         /**
          * Serializes your data into an NBT tag. This is used when saving the chunk to disk.
          */
@@ -290,7 +372,8 @@ public interface DataManager {
          * Deserializes your data from an NBT tag. This is used when loading the chunk from disk.
          * The NBT *may* be null if the chunk was saved before this manager was registered
          * (e.g., loading save before the mod was added), and the manager is not {@link #subChunkPrivilegedAccess() privileged}.
-         * In this case, you should initialize the data to a sane default.
+         * In this case, you should initialize the data to a sane default. Missing data is passed as an empty compound
+         * shared between managers, which ignores writes.
          */
         @Contract(mutates = "param2")
         void readSubChunkFromNBT(Chunk chunk, ExtendedBlockStorage subChunk, NBTTagCompound nbt);
@@ -304,5 +387,67 @@ public interface DataManager {
          */
         @Contract(mutates = "param3")
         void cloneSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to);
+
+        /**
+         * Makes the target subChunk use the same data objects as the source subChunk, for a copy-on-write clone.
+         * Neither subChunk may modify the shared data until {@link #unshareSubChunk} was called on it.
+         *
+         * @param fromChunk The owner of the subChunk to share data from.
+         * @param from      The subChunk to share data from.
+         * @param to        The subChunk to share data with.
+         * @implSpec The default implementation copies the data through {@link #cloneSubChunk}.
+         * @see DataRegistry#cloneSubChunk(Chunk, ExtendedBlockStorage, ExtendedBlockStorage, boolean)
+         * @since 0.8.0
+         */
+        @Contract(mutates = "param3")
+        default void shareSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
+            cloneSubChunk(fromChunk, from, to);
+        }
+
+        /**
+         * Replaces the data shared by {@link #shareSubChunk} with a private copy. Called before the subChunk gets
+         * modified, on either side of the clone.
+         *
+         * @implSpec Only called while ChunkAPI holds the lock of the subChunk.
+         * @since 0.8.0
+         */
+        @Contract(mutates = "param1")
+        default void unshareSubChunk(ExtendedBlockStorage subChunk) {
+        }
+    }
+
+    /**
+     * A {@link SubChunkDataManager} that saves its data as raw bytes instead of an NBT compound. ChunkAPI packs the data
+     * of every such manager into a single byte array tag per subChunk, so no NBT tags are created for it.
+     * <p>
+     * {@link #readSubChunkFromNBT} is still called for subChunks that were saved without this manager's binary data,
+     * for example before the manager implemented this interface. {@link #writeSubChunkToNBT} is no longer called by
+     * ChunkAPI.
+     *
+     * @author FalsePattern
+     * @version 0.8.0
+     * @since 0.8.0
+     */
+    interface BinarySubChunkDataManager extends SubChunkDataManager {
+        /**
+         * @return The maximum amount of bytes your data can take up in a subChunk.
+         *
+         * @implSpec Only called ONCE, during registration!
+         */
+        @Contract(pure = true)
+        int maxSubChunkBinarySize();
+
+        /**
+         * Serializes your data into the buffer. This is used when saving the chunk to disk.
+         */
+        @Contract(mutates = "param3")
+        void writeSubChunkToBuffer(Chunk chunk, ExtendedBlockStorage subChunk, ByteBuffer buffer);
+
+        /**
+         * Deserializes your data from the buffer. This is used when loading the chunk from disk. The buffer contains
+         * exactly the bytes written by {@link #writeSubChunkToBuffer}.
+         */
+        @Contract(mutates = "param2")
+        void readSubChunkFromBuffer(Chunk chunk, ExtendedBlockStorage subChunk, ByteBuffer buffer);
     }
 }
@@ -113,6 +113,25 @@ public class DataRegistry {
         return DataRegistryImpl.getRegisteredManagersOrdered();
     }
 
+    /**
+     * Marks the packet data of a manager in a chunk as changed. At the end of the server tick, the data of every dirty
+     * manager gets sent to the players watching the chunk, without resending the rest of the chunk.
+     * <p>
+     * The client receives it through {@link DataManager.PacketDataManager#readFromBuffer} with the accumulated subchunk
+     * mask and forceUpdate set to false. Only call this from the server thread. Client-side chunks are ignored.
+     *
+     * @param chunk        The chunk whose data changed
+     * @param manager      The manager that owns the data
+     * @param subChunkMask The subchunks that changed, or 0 if only chunk-level data changed
+     *
+     * @throws IllegalStateException    If the registration stage is not over yet.
+     * @throws IllegalArgumentException If the manager is not registered, or disabled.
+     * @since 0.8.0
+     */
+    public static void markDirty(Chunk chunk, DataManager.PacketDataManager manager, int subChunkMask) throws IllegalStateException, IllegalArgumentException {
+        DataRegistryImpl.markDirty(chunk, manager, subChunkMask);
+    }
+
     /**
      * Copies chunk-level data from a source chunk to a target chunk.
      * DOES NOT copy data contained inside its ExtendedBlockStorage instances!!
@@ -136,4 +155,42 @@ public class DataRegistry {
     public static void cloneSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
         DataRegistryImpl.cloneSubChunk(fromChunk, from, to);
     }
+
+    /**
+     * Copies data from a source subChunk to a target subChunk, optionally copy-on-write.
+     * <p>
+     * With copyOnWrite, managers implementing {@link DataManager.SubChunkDataManager#shareSubChunk} share their data
+     * between the two subChunks instead of copying it. The data is copied when either subChunk gets written to through
+     * its setters, or when the arrays of the source subChunk are retrieved through its getters. This is meant for
+     * snapshots that are only read afterward, writing into the arrays returned by the getters of the target subChunk
+     * is not detected.
+     *
+     * @param fromChunk   The chunk that owns the *from* subChunk. Used by data managers for getting metadata about the world (skylight presence, etc.)
+     * @param from        The subChunk to read the data from
+     * @param to          The subChunk to write the data to
+     * @param copyOnWrite Share the data until either subChunk is modified
+     *
+     * @since 0.8.0
+     */
+    @Contract(mutates = "param2,param3")
+    public static void cloneSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to, boolean copyOnWrite) {
+        if (copyOnWrite) {
+            DataRegistryImpl.shareSubChunk(fromChunk, from, to);
+        } else {
+            DataRegistryImpl.cloneSubChunk(fromChunk, from, to);
+        }
+    }
+
+    /**
+     * Gives the subChunk its own copy of any data it shares through a copy-on-write
+     * {@link #cloneSubChunk(Chunk, ExtendedBlockStorage, ExtendedBlockStorage, boolean) clone}. Managers that keep
+     * their data outside the vanilla ExtendedBlockStorage arrays must call this before modifying it. Cheap if the
+     * subChunk shares nothing.
+     *
+     * @since 0.8.0
+     */
+    @Contract(mutates = "param1")
+    public static void unshareSubChunk(ExtendedBlockStorage subChunk) {
+        DataRegistryImpl.unshareSubChunk(subChunk);
+    }
 }
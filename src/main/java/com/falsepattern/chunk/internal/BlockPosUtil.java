@@ -47,4 +47,15 @@ public class BlockPosUtil {
     public static int getZ(long packed) {
         return (int) (packed << 64 - NUM_Z_BITS >> 64 - NUM_Z_BITS);
     }
+
+    /**
+     * Maps signed values to unsigned ones so that small deltas of either sign stay small varints.
+     */
+    public static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    public static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
 }
@@ -23,6 +23,9 @@
 package com.falsepattern.chunk.internal;
 
 import com.falsepattern.chunk.api.DataRegistry;
+import com.falsepattern.chunk.internal.network.BlockChangeCoalescer;
+import com.falsepattern.chunk.internal.network.ChunkAPINetwork;
+import com.falsepattern.chunk.internal.network.DirtyChunkTracker;
 import com.falsepattern.chunk.internal.vanilla.BiomeManager;
 import com.falsepattern.chunk.internal.vanilla.BlockIDManager;
 import com.falsepattern.chunk.internal.vanilla.BlocklightManager;
@@ -32,6 +35,9 @@ import com.falsepattern.chunk.internal.vanilla.SkylightManager;
 
 import cpw.mods.fml.common.Mod;
 import cpw.mods.fml.common.event.FMLInitializationEvent;
+import cpw.mods.fml.common.event.FMLLoadCompleteEvent;
+import cpw.mods.fml.common.event.FMLServerStartingEvent;
+import cpw.mods.fml.common.event.FMLServerStoppedEvent;
 
 @Mod(modid = Tags.MOD_ID,
      version = Tags.MOD_VERSION,
@@ -47,5 +53,23 @@ public class ChunkAPI {
         DataRegistry.registerDataManager(new BlocklightManager(), 0);
         DataRegistry.registerDataManager(new SkylightManager(), 0);
         DataRegistry.registerDataManager(new BiomeManager(), 0);
+        ChunkAPINetwork.init();
+    }
+
+    @Mod.EventHandler
+    public void loadComplete(FMLLoadCompleteEvent event) {
+        // Managers can still be disabled during postInit, so wait until every mod is done with it.
+        DataRegistryImpl.freeze();
+    }
+
+    @Mod.EventHandler
+    public void serverStarting(FMLServerStartingEvent event) {
+        event.registerServerCommand(new ChunkAPICommand());
+    }
+
+    @Mod.EventHandler
+    public void serverStopped(FMLServerStoppedEvent event) {
+        BlockChangeCoalescer.clear();
+        DirtyChunkTracker.clear();
     }
 }
\ No newline at end of file
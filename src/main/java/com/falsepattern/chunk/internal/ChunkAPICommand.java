@@ -0,0 +1,71 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal;
+
+import lombok.val;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.util.ChatComponentText;
+
+public class ChunkAPICommand extends CommandBase {
+    @Override
+    public String getCommandName() {
+        return Tags.MOD_ID;
+    }
+
+    @Override
+    public String getCommandUsage(ICommandSender sender) {
+        return "/" + Tags.MOD_ID + " <stats|reset>";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 2;
+    }
+
+    @Override
+    public void processCommand(ICommandSender sender, String[] args) {
+        if (args.length != 1) {
+            throw new WrongUsageException(getCommandUsage(sender));
+        }
+        switch (args[0]) {
+            case "stats":
+                val stats = Metrics.snapshot();
+                if (stats.isEmpty()) {
+                    sender.addChatMessage(new ChatComponentText("No ChunkAPI statistics recorded yet."));
+                }
+                for (val entry : stats.entrySet()) {
+                    sender.addChatMessage(new ChatComponentText(entry.getKey() + ": " + entry.getValue()));
+                }
+                break;
+            case "reset":
+                Metrics.reset();
+                sender.addChatMessage(new ChatComponentText("ChunkAPI statistics reset."));
+                break;
+            default:
+                throw new WrongUsageException(getCommandUsage(sender));
+        }
+    }
+}
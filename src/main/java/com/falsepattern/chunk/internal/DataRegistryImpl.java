@@ -22,9 +22,17 @@
 
 package com.falsepattern.chunk.internal;
 
+import com.falsepattern.chunk.api.BlockChangeBatch;
 import com.falsepattern.chunk.api.DataManager;
 import com.falsepattern.chunk.api.OrderedManager;
+import com.falsepattern.chunk.internal.impl.CopyOnWriteSubChunk;
+import com.falsepattern.chunk.internal.impl.CustomChunk;
+import com.falsepattern.chunk.internal.mixin.helpers.ScratchBuffers;
+import com.falsepattern.chunk.internal.network.ConnectionContext;
+import com.falsepattern.chunk.internal.network.DirtyChunkTracker;
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import lombok.val;
 import lombok.var;
 import org.jetbrains.annotations.Nullable;
@@ -41,9 +49,12 @@ import cpw.mods.fml.common.StartupQuery;
 import cpw.mods.fml.common.ZipperUtil;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -53,6 +64,7 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 public class DataRegistryImpl {
@@ -65,8 +77,50 @@ public class DataRegistryImpl {
     private static final SortedMap<OrderedManager, DataManager.ChunkDataManager> chunkNBTManagers = new TreeMap<>();
     private static final SortedMap<OrderedManager, DataManager.SubChunkDataManager> subChunkNBTManagers = new TreeMap<>();
     private static final Set<String> disabledManagers = new HashSet<>();
-    private static int maxPacketSize = 4;
-    private static int maxPacketSizeCubic = 4;
+    /**
+     * Varint protocol features + varint manager count at the start of every payload.
+     */
+    private static final int PAYLOAD_HEADER_SIZE = 5 + 5;
+    /**
+     * Varint network id + int length in front of every manager's data.
+     */
+    private static final int MANAGER_HEADER_SIZE = 5 + 4;
+    /**
+     * The byte array tag holding the data of every {@link DataManager.BinarySubChunkDataManager} in a subChunk: a
+     * varint manager count, then the {@code domain:id} of each manager as a varint length prefixed UTF-8 string,
+     * followed by its data length as a 4 byte int and the data.
+     */
+    public static final String BINARY_SUBCHUNK_KEY = "ChunkAPIBinary";
+    private static final NBTTagCompound[] NO_DOMAIN_TAGS = new NBTTagCompound[0];
+    private static int maxPacketSize = PAYLOAD_HEADER_SIZE;
+    private static int maxPacketSizeCubic = PAYLOAD_HEADER_SIZE;
+
+    private static volatile boolean frozen = false;
+    // Flat dispatch tables, built once by freeze(). For the packet tables, the index of a manager is its network id.
+    private static PacketManagerInfo[] packetManagerTable = new PacketManagerInfo[0];
+    private static byte[][] packetManagerIdBytes = new byte[0][];
+    private static CubicPacketManagerInfo[] cubicPacketManagerTable = new CubicPacketManagerInfo[0];
+    private static byte[][] cubicPacketManagerIdBytes = new byte[0][];
+    private static DataManager.BlockPacketDataManager[] blockPacketManagerTable = new DataManager.BlockPacketDataManager[0];
+    // Same order as blockPacketManagerTable, legacy managers are wrapped in a LegacyBlockPacketAdapter
+    private static DataManager.BulkBlockPacketDataManager[] bulkBlockPacketManagerTable = new DataManager.BulkBlockPacketDataManager[0];
+    private static byte[][] blockPacketManagerIdBytes = new byte[0][];
+    private static ManagerSet allManagers;
+    private static ChunkNBTManagerInfo[] chunkNBTManagerTable = new ChunkNBTManagerInfo[0];
+    private static SubChunkNBTManagerInfo[] subChunkNBTManagerTable = new SubChunkNBTManagerInfo[0];
+    /**
+     * The number of distinct domains among the non-privileged managers of the respective table. Each domain compound is
+     * only looked up or created once per chunk or subChunk.
+     */
+    private static int chunkNBTDomainCount = 0;
+    private static int subChunkNBTDomainCount = 0;
+    private static int binarySubChunkManagerCount = 0;
+    private static int maxSubChunkBinarySize = 0;
+    private static boolean concurrentSubChunkReads = false;
+    private static boolean stampedPacketData = false;
+    private static volatile RemoteManagerTable remoteManagers = null;
+    private static final LongAdder sharedSubChunks = Metrics.counter("clone.cow.shared");
+    private static final LongAdder unsharedSubChunks = Metrics.counter("clone.cow.copied");
 
     @Data
     private static class PacketManagerInfo {
@@ -80,8 +134,55 @@ public class DataRegistryImpl {
         public final DataManager.CubicPacketDataManager manager;
     }
 
+    @Data
+    private static class ChunkNBTManagerInfo {
+        public final boolean privileged;
+        public final String domain;
+        public final String id;
+        public final DataManager.ChunkDataManager manager;
+        /**
+         * Index of the domain compound of the manager, see {@link #chunkNBTDomainCount}. -1 for privileged managers
+         */
+        public final int domainIndex;
+    }
+
+    @Data
+    private static class SubChunkNBTManagerInfo {
+        public final boolean privileged;
+        public final String domain;
+        public final String id;
+        public final DataManager.SubChunkDataManager manager;
+        /**
+         * Null if the manager only uses NBT
+         */
+        public final DataManager.BinarySubChunkDataManager binary;
+        /**
+         * The UTF-8 encoded {@code domain:id} of binary managers, with a varint length prefix
+         */
+        public final byte[] binaryName;
+        public final int maxBinarySize;
+        /**
+         * Index of the domain compound of the manager, see {@link #subChunkNBTDomainCount}. -1 for privileged managers
+         */
+        public final int domainIndex;
+    }
+
+    /**
+     * Maps the network ids assigned by the server to the local managers. Unknown managers are null.
+     */
+    @Data
+    private static class RemoteManagerTable {
+        public final String[] packetIds;
+        public final PacketManagerInfo[] packetManagers;
+        public final String[] cubicIds;
+        public final CubicPacketManagerInfo[] cubicPacketManagers;
+        public final String[] blockIds;
+        public final DataManager.BlockPacketDataManager[] blockPacketManagers;
+        public final DataManager.BulkBlockPacketDataManager[] bulkBlockPacketManagers;
+    }
+
     public static void registerDataManager(DataManager manager, int ordering) throws IllegalStateException, IllegalArgumentException {
-        if (Loader.instance().getLoaderState() != LoaderState.INITIALIZATION) {
+        if (frozen || Loader.instance().getLoaderState() != LoaderState.INITIALIZATION) {
             throw new IllegalStateException("ChunkDataManager registration is not allowed at this time! Please register your ChunkDataManager in the init phase.");
         }
         var id = manager.domain() + ":" + manager.id();
@@ -100,7 +201,7 @@ public class DataRegistryImpl {
         if (manager instanceof DataManager.PacketDataManager) {
             val packetManager = (DataManager.PacketDataManager) manager;
             val maxSize = packetManager.maxPacketSize();
-            maxPacketSize += 4 + id.getBytes(StandardCharsets.UTF_8).length + 4 + maxSize;
+            maxPacketSize += MANAGER_HEADER_SIZE + maxSize;
             val man = new PacketManagerInfo(maxSize, packetManager);
             packetManagers.put(ord, man);
         }
@@ -111,7 +212,7 @@ public class DataRegistryImpl {
         if (manager instanceof DataManager.CubicPacketDataManager) {
             val cubicPacketManager = (DataManager.CubicPacketDataManager) manager;
             val maxSize = cubicPacketManager.maxPacketSizeCubic();
-            maxPacketSizeCubic += 4 + id.getBytes(StandardCharsets.UTF_8).length + 4 + maxSize;
+            maxPacketSizeCubic += MANAGER_HEADER_SIZE + maxSize;
             cubicPacketManagers.put(ord, new CubicPacketManagerInfo(maxSize, cubicPacketManager));
         }
         if (manager instanceof DataManager.StorageDataManager) {
@@ -126,7 +227,7 @@ public class DataRegistryImpl {
     }
 
     public static void disableDataManager(String domain, String id) {
-        if (Loader.instance().getLoaderState() != LoaderState.POSTINITIALIZATION) {
+        if (frozen || Loader.instance().getLoaderState() != LoaderState.POSTINITIALIZATION) {
             throw new IllegalStateException("ChunkDataManager disabling is not allowed at this time! Please disable any ChunkDataManagers in the postInit phase.");
         }
         Common.LOG.debug("Disabling ChunkDataManager " + id + " in domain " + domain + ". See the stacktrace for the source of this event.\nThis is NOT an error.",
@@ -139,11 +240,11 @@ public class DataRegistryImpl {
             //Clear the maps
             if (packetManagers.containsKey(ord)) {
                 val removed = packetManagers.remove(ord);
-                maxPacketSize -= 4 + id.getBytes(StandardCharsets.UTF_8).length + 4 + removed.maxPacketSize;
+                maxPacketSize -= MANAGER_HEADER_SIZE + removed.maxPacketSize;
             }
             if (cubicPacketManagers.containsKey(ord)) {
                 val removed = cubicPacketManagers.remove(ord);
-                maxPacketSizeCubic -= 4 + id.getBytes(StandardCharsets.UTF_8).length + 4 + removed.maxPacketSize;
+                maxPacketSizeCubic -= MANAGER_HEADER_SIZE + removed.maxPacketSize;
             }
             blockPacketManagers.remove(ord);
             chunkNBTManagers.remove(ord);
@@ -155,81 +256,510 @@ public class DataRegistryImpl {
         disabledManagers.add(manager);
     }
 
+    /**
+     * Locks in the set of registered managers and assigns their network ids. Called once all mods finished loading.
+     */
+    public static void freeze() {
+        if (frozen) {
+            return;
+        }
+        packetManagerTable = toArray(packetManagers.values(), new PacketManagerInfo[packetManagers.size()]);
+        packetManagerIdBytes = networkIdBytes(packetManagerTable.length);
+        boolean stamped = true;
+        for (val info : packetManagerTable) {
+            stamped &= info.manager.stampedPacketData();
+        }
+        stampedPacketData = stamped;
+        cubicPacketManagerTable = toArray(cubicPacketManagers.values(), new CubicPacketManagerInfo[cubicPacketManagers.size()]);
+        cubicPacketManagerIdBytes = networkIdBytes(cubicPacketManagerTable.length);
+        blockPacketManagerTable = toArray(blockPacketManagers.values(), new DataManager.BlockPacketDataManager[blockPacketManagers.size()]);
+        bulkBlockPacketManagerTable = toBulk(blockPacketManagerTable);
+        blockPacketManagerIdBytes = networkIdBytes(blockPacketManagerTable.length);
+        allManagers = ManagerSet.all(packetManagerTable.length, cubicPacketManagerTable.length, blockPacketManagerTable.length);
+
+        val chunkNBT = new ChunkNBTManagerInfo[chunkNBTManagers.size()];
+        val chunkDomains = new HashMap<String, Integer>();
+        int i = 0;
+        for (val manager : chunkNBTManagers.values()) {
+            val privileged = manager.chunkPrivilegedAccess();
+            val domainIndex = privileged ? -1 : chunkDomains.computeIfAbsent(manager.domain(), k -> chunkDomains.size());
+            chunkNBT[i++] = new ChunkNBTManagerInfo(privileged, manager.domain(), manager.id(), manager, domainIndex);
+        }
+        chunkNBTManagerTable = chunkNBT;
+        chunkNBTDomainCount = chunkDomains.size();
+
+        val subChunkNBT = new SubChunkNBTManagerInfo[subChunkNBTManagers.size()];
+        i = 0;
+        int binaryCount = 0;
+        int maxBinarySize = 5;
+        boolean concurrentReads = true;
+        val subChunkDomains = new HashMap<String, Integer>();
+        for (val manager : subChunkNBTManagers.values()) {
+            concurrentReads &= manager.concurrentSubChunkReads();
+            if (manager instanceof DataManager.BinarySubChunkDataManager) {
+                val binary = (DataManager.BinarySubChunkDataManager) manager;
+                val name = (manager.domain() + ":" + manager.id()).getBytes(StandardCharsets.UTF_8);
+                val prefixed = ByteBuffer.allocate(varIntSize(name.length) + name.length);
+                writeVarInt(prefixed, name.length);
+                prefixed.put(name);
+                val maxSize = binary.maxSubChunkBinarySize();
+                // Still needs its domain to read subChunks saved before it implemented BinarySubChunkDataManager
+                val domainIndex = subChunkDomains.computeIfAbsent(manager.domain(), k -> subChunkDomains.size());
+                subChunkNBT[i++] = new SubChunkNBTManagerInfo(false, manager.domain(), manager.id(), manager, binary, prefixed.array(), maxSize, domainIndex);
+                binaryCount++;
+                maxBinarySize += prefixed.capacity() + 4 + maxSize;
+            } else {
+                val privileged = manager.subChunkPrivilegedAccess();
+                val domainIndex = privileged ? -1 : subChunkDomains.computeIfAbsent(manager.domain(), k -> subChunkDomains.size());
+                subChunkNBT[i++] = new SubChunkNBTManagerInfo(privileged, manager.domain(), manager.id(), manager, null, null, 0, domainIndex);
+            }
+        }
+        subChunkNBTManagerTable = subChunkNBT;
+        binarySubChunkManagerCount = binaryCount;
+        maxSubChunkBinarySize = maxBinarySize;
+        concurrentSubChunkReads = concurrentReads;
+        subChunkNBTDomainCount = subChunkDomains.size();
+
+        // Volatile write, publishes the tables to the netty and worker threads
+        frozen = true;
+    }
+
+    private static byte[][] networkIdBytes(int count) {
+        val bytes = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = varIntBytes(i);
+        }
+        return bytes;
+    }
+
+    static byte[] varIntBytes(int value) {
+        val buf = ByteBuffer.allocate(5);
+        writeVarInt(buf, value);
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+
+    private static DataManager.BulkBlockPacketDataManager[] toBulk(DataManager.BlockPacketDataManager[] managers) {
+        val bulk = new DataManager.BulkBlockPacketDataManager[managers.length];
+        for (int i = 0; i < managers.length; i++) {
+            bulk[i] = LegacyBlockPacketAdapter.wrap(managers[i]);
+        }
+        return bulk;
+    }
+
+    private static <T> T[] toArray(Iterable<T> values, T[] array) {
+        int i = 0;
+        for (val value : values) {
+            array[i++] = value;
+        }
+        return array;
+    }
+
+    public static int packetManagerCount() {
+        return packetManagerTable.length;
+    }
+
+    public static int cubicPacketManagerCount() {
+        return cubicPacketManagerTable.length;
+    }
+
+    public static int blockPacketManagerCount() {
+        return blockPacketManagerTable.length;
+    }
+
+    /**
+     * @return Every registered packet manager, used for connections that did not report their managers (yet).
+     */
+    public static ManagerSet allManagers() {
+        return allManagers;
+    }
+
+    public static String[] getPacketManagerIds() {
+        return toIdArray(packetManagers.keySet());
+    }
+
+    public static String[] getCubicPacketManagerIds() {
+        return toIdArray(cubicPacketManagers.keySet());
+    }
+
+    public static String[] getBlockPacketManagerIds() {
+        return toIdArray(blockPacketManagers.keySet());
+    }
+
+    private static String[] toIdArray(Set<OrderedManager> managers) {
+        val ids = new String[managers.size()];
+        int i = 0;
+        for (val ord : managers) {
+            ids[i++] = ord.id;
+        }
+        return ids;
+    }
+
+    /**
+     * Called on the client when the server sends its manager table. The index of each id is its network id.
+     */
+    public static void setRemoteManagerIds(String[] packetIds, String[] cubicIds, String[] blockIds) {
+        val packet = new PacketManagerInfo[packetIds.length];
+        for (int i = 0; i < packetIds.length; i++) {
+            packet[i] = packetManagers.get(packetIds[i]);
+        }
+        val cubic = new CubicPacketManagerInfo[cubicIds.length];
+        for (int i = 0; i < cubicIds.length; i++) {
+            cubic[i] = cubicPacketManagers.get(cubicIds[i]);
+        }
+        val block = new DataManager.BlockPacketDataManager[blockIds.length];
+        for (int i = 0; i < blockIds.length; i++) {
+            block[i] = blockPacketManagers.get(blockIds[i]);
+            if (block[i] == null) {
+                Common.LOG.warn("Server uses unknown BlockPacketDataManager " + blockIds[i] + ". Block updates will fail to decode!");
+            }
+        }
+        remoteManagers = new RemoteManagerTable(packetIds, packet, cubicIds, cubic, blockIds, block, toBulk(block));
+    }
+
+    /**
+     * @return The network ids of the server's packet, cubic packet and block packet managers that exist on this side.
+     */
+    public static BitSet[] knownRemoteManagers() {
+        val remote = remoteManagers();
+        return new BitSet[]{known(remote.packetManagers), known(remote.cubicPacketManagers), known(remote.bulkBlockPacketManagers)};
+    }
+
+    private static BitSet known(Object[] managers) {
+        val bits = new BitSet(managers.length);
+        for (int i = 0; i < managers.length; i++) {
+            if (managers[i] != null) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    public static void clearRemoteManagerIds() {
+        remoteManagers = null;
+    }
+
+    private static RemoteManagerTable remoteManagers() {
+        val remote = remoteManagers;
+        if (remote == null) {
+            throw new IllegalStateException("Received ChunkAPI data before the manager table from the server!");
+        }
+        return remote;
+    }
+
     public static int maxPacketSize() {
         return maxPacketSize;
     }
 
+    /**
+     * @return The size limit of {@link #writePartialToArray}, which also writes a subchunk mask per manager.
+     */
+    public static int maxPartialPacketSize() {
+        return maxPacketSize + 4 * packetManagerTable.length;
+    }
+
     public static int maxPacketSizeCubic() {
         return maxPacketSizeCubic;
     }
 
-    private static void writeString(ByteBuffer buffer, String string) {
-        val bytes = string.getBytes();
-        buffer.putInt(bytes.length);
-        buffer.put(bytes);
+    public static int maxSubChunkBinarySize() {
+        return maxSubChunkBinarySize;
+    }
+
+    /**
+     * @return True if every SubChunkDataManager can read different subChunks of a chunk at the same time.
+     */
+    public static boolean concurrentSubChunkReads() {
+        return concurrentSubChunkReads;
+    }
+
+    /**
+     * @return True if the packet data of every PacketDataManager is covered by the chunk stamps.
+     */
+    public static boolean stampedPacketData() {
+        return stampedPacketData;
     }
 
-    private static String readString(ByteBuffer buffer) {
-        val length = buffer.getInt();
-        val bytes = new byte[length];
-        buffer.get(bytes);
-        return new String(bytes);
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= 35) {
+                throw new IllegalArgumentException("VarInt too big");
+            }
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
     }
 
     public static void readFromBuffer(Chunk chunk, int subChunkMask, boolean forceUpdate, byte[] data) {
+        val remote = remoteManagers();
         val buf = ByteBuffer.wrap(data);
         buf.order(ByteOrder.LITTLE_ENDIAN);
-        int count = buf.getInt();
-        for (int i = 0; i < count; i++) {
-            val id = readString(buf);
-            val length = buf.getInt();
-            val managerInfo = packetManagers.get(id);
-            if (managerInfo == null) {
-                Common.LOG.error("Received data for unknown PacketDataManager " + id + ". Skipping.");
-                buf.position(buf.position() + length);
-                continue;
-            }
-            if (length > managerInfo.maxPacketSize) {
-                Common.LOG.error("Received packet larger than max size for PacketDataManager " + id + "! Continuing anyways, things might break!");
+        val previous = ProtocolFeatures.beginActive(readVarInt(buf));
+        try {
+            int count = readVarInt(buf);
+            for (int i = 0; i < count; i++) {
+                val networkId = readVarInt(buf);
+                val length = buf.getInt();
+                val managerInfo = networkId < remote.packetManagers.length ? remote.packetManagers[networkId] : null;
+                if (managerInfo == null) {
+                    Common.LOG.error("Received data for unknown PacketDataManager " + remoteId(remote.packetIds, networkId) + ". Skipping.");
+                    buf.position(buf.position() + length);
+                    continue;
+                }
+                if (length > managerInfo.maxPacketSize) {
+                    Common.LOG.error("Received packet larger than max size for PacketDataManager " + remote.packetIds[networkId] + "! Continuing anyways, things might break!");
+                }
+                int start = buf.position();
+                val slice = createSlice(buf, start, length);
+                managerInfo.manager.readFromBuffer(chunk, subChunkMask, forceUpdate, slice);
+                buf.position(start + length);
             }
-            int start = buf.position();
-            val slice = createSlice(buf, start, length);
-            managerInfo.manager.readFromBuffer(chunk, subChunkMask, forceUpdate, slice);
-            buf.position(start + length);
+        } finally {
+            ProtocolFeatures.endActive(previous);
         }
     }
 
     public static void readFromBufferCubic(Chunk chunk, ExtendedBlockStorage blockStorage, byte[] data) {
+        val remote = remoteManagers();
         val buf = ByteBuffer.wrap(data);
         buf.order(ByteOrder.LITTLE_ENDIAN);
-        int count = buf.getInt();
-        for (int i = 0; i < count; i++) {
-            val id = readString(buf);
-            val length = buf.getInt();
-            val managerInfo = cubicPacketManagers.get(id);
-            if (managerInfo == null) {
-                Common.LOG.error("Received data for unknown CubicPacketDataManager " + id + ". Skipping.");
-                buf.position(buf.position() + length);
-                continue;
+        val previous = ProtocolFeatures.beginActive(readVarInt(buf));
+        try {
+            int count = readVarInt(buf);
+            for (int i = 0; i < count; i++) {
+                val networkId = readVarInt(buf);
+                val length = buf.getInt();
+                val managerInfo = networkId < remote.cubicPacketManagers.length ? remote.cubicPacketManagers[networkId] : null;
+                if (managerInfo == null) {
+                    Common.LOG.error("Received data for unknown CubicPacketDataManager " + remoteId(remote.cubicIds, networkId) + ". Skipping.");
+                    buf.position(buf.position() + length);
+                    continue;
+                }
+                if (length > managerInfo.maxPacketSize) {
+                    Common.LOG.error("Received packet larger than max size for CubicPacketDataManager " + remote.cubicIds[networkId] + "! Continuing anyways, things might break!");
+                }
+                int start = buf.position();
+                val slice = createSlice(buf, start, length);
+                managerInfo.manager.readFromBuffer(chunk, blockStorage, slice);
+                buf.position(start + length);
             }
-            if (length > managerInfo.maxPacketSize) {
-                Common.LOG.error("Received packet larger than max size for CubicPacketDataManager " + id + "! Continuing anyways, things might break!");
+        } finally {
+            ProtocolFeatures.endActive(previous);
+        }
+    }
+
+    /**
+     * @return The network id of the manager, or -1 if it is not a registered packet data manager.
+     */
+    public static int packetNetworkId(DataManager.PacketDataManager manager) {
+        val table = packetManagerTable;
+        for (int networkId = 0; networkId < table.length; networkId++) {
+            if (table[networkId].manager == manager) {
+                return networkId;
             }
-            int start = buf.position();
-            val slice = createSlice(buf, start, length);
-            managerInfo.manager.readFromBuffer(chunk, blockStorage, slice);
-            buf.position(start + length);
+        }
+        return -1;
+    }
+
+    public static void markDirty(Chunk chunk, DataManager.PacketDataManager manager, int subChunkMask) {
+        if (!frozen) {
+            throw new IllegalStateException("Cannot mark chunk data dirty before the registry is frozen!");
+        }
+        val networkId = packetNetworkId(manager);
+        if (networkId < 0) {
+            throw new IllegalArgumentException("PacketDataManager " + manager.domain() + ":" + manager.id() + " is not registered, or disabled!");
+        }
+        // Keeps cached chunk payloads from serving the old data
+        ((CustomChunk) chunk).chunkapi$bumpStamp();
+        DirtyChunkTracker.markDirty(chunk, networkId, subChunkMask);
+    }
+
+    /**
+     * Writes the data of the dirty managers only. Unlike the full payload, every manager gets its own subchunk mask.
+     *
+     * @param masks The subchunk mask of each manager, indexed by network id. Managers without a mask are skipped.
+     */
+    public static byte[] writePartialToArray(Chunk chunk, int[] masks, boolean[] dirty) {
+        val table = packetManagerTable;
+        val idBytes = packetManagerIdBytes;
+        val managers = ProtocolFeatures.encodeManagers();
+        int count = 0;
+        int size = PAYLOAD_HEADER_SIZE;
+        for (int networkId = 0; networkId < table.length; networkId++) {
+            if (dirty[networkId] && managers.hasPacket(networkId)) {
+                count++;
+                size += MANAGER_HEADER_SIZE + 4 + table[networkId].maxPacketSize;
+            }
+        }
+        val buf = ByteBuffer.wrap(new byte[size]);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        val features = ProtocolFeatures.encodeFeatures();
+        writeVarInt(buf, features);
+        writeVarInt(buf, count);
+        // Same as the full payload, subchunks that don't exist are left out of the masks
+        int existing = 0;
+        val subChunks = chunk.getBlockStorageArray();
+        for (int i = 0; i < subChunks.length; i++) {
+            if (subChunks[i] != null) {
+                existing |= 1 << i;
+            }
+        }
+        val previous = ProtocolFeatures.beginActive(features);
+        try {
+            for (int networkId = 0; networkId < table.length; networkId++) {
+                if (!dirty[networkId] || !managers.hasPacket(networkId)) {
+                    continue;
+                }
+                val managerInfo = table[networkId];
+                val mask = masks[networkId] & existing;
+                buf.put(idBytes[networkId]);
+                buf.putInt(mask);
+                int start = buf.position() + 4;
+                val slice = createSlice(buf, start, managerInfo.maxPacketSize);
+                managerInfo.manager.writeToBuffer(chunk, mask, false, slice);
+                int length = slice.position();
+                buf.putInt(length);
+                buf.position(start + length);
+            }
+        } finally {
+            ProtocolFeatures.endActive(previous);
+        }
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+
+    /**
+     * @return The union of the subchunk masks in the payload.
+     */
+    public static int readPartialFromBuffer(Chunk chunk, byte[] data) {
+        val remote = remoteManagers();
+        val buf = ByteBuffer.wrap(data);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        val previous = ProtocolFeatures.beginActive(readVarInt(buf));
+        int union = 0;
+        try {
+            int count = readVarInt(buf);
+            for (int i = 0; i < count; i++) {
+                val networkId = readVarInt(buf);
+                val mask = buf.getInt();
+                val length = buf.getInt();
+                val managerInfo = networkId < remote.packetManagers.length ? remote.packetManagers[networkId] : null;
+                if (managerInfo == null) {
+                    Common.LOG.error("Received partial data for unknown PacketDataManager " + remoteId(remote.packetIds, networkId) + ". Skipping.");
+                    buf.position(buf.position() + length);
+                    continue;
+                }
+                // The vanilla managers skip missing subchunks without reading their data
+                createSubChunks(chunk, mask);
+                int start = buf.position();
+                val slice = createSlice(buf, start, length);
+                managerInfo.manager.readFromBuffer(chunk, mask, false, slice);
+                buf.position(start + length);
+                union |= mask;
+            }
+        } finally {
+            ProtocolFeatures.endActive(previous);
+        }
+        return union;
+    }
+
+    private static void createSubChunks(Chunk chunk, int subChunkMask) {
+        val subChunks = chunk.getBlockStorageArray();
+        val hasSky = !chunk.worldObj.provider.hasNoSky;
+        for (int i = 0; i < subChunks.length; i++) {
+            if ((subChunkMask & (1 << i)) != 0 && subChunks[i] == null) {
+                subChunks[i] = new ExtendedBlockStorage(i << 4, hasSky);
+            }
+        }
+    }
+
+    private static String remoteId(String[] ids, int networkId) {
+        return networkId < ids.length ? ids[networkId] : "#" + networkId;
+    }
+
+    /**
+     * Writes the chunk payload into an exactly sized array, if every manager can report its size up front.
+     *
+     * @return The payload, or null if a manager does not know its size. Use {@link #writeToBuffer(Chunk, int, boolean, byte[])}
+     * with a {@link #maxPacketSize()} sized buffer in that case.
+     */
+    public static byte @Nullable [] writeToArray(Chunk chunk, int subChunkMask, boolean forceUpdate) {
+        val features = ProtocolFeatures.encodeFeatures();
+        val managers = ProtocolFeatures.encodeManagers();
+        val previous = ProtocolFeatures.beginActive(features);
+        try {
+            val table = packetManagerTable;
+            val idBytes = packetManagerIdBytes;
+            int size = varIntSize(features) + managers.packetCountBytes.length;
+            for (int networkId = 0; networkId < table.length; networkId++) {
+                if (!managers.hasPacket(networkId)) {
+                    continue;
+                }
+                val managerInfo = table[networkId];
+                val managerSize = managerInfo.manager.packetSize(chunk, subChunkMask, forceUpdate);
+                if (managerSize < 0 || managerSize > managerInfo.maxPacketSize) {
+                    return null;
+                }
+                size += idBytes[networkId].length + 4 + managerSize;
+            }
+            val data = new byte[size];
+            int length;
+            try {
+                length = writeFrame(chunk, subChunkMask, forceUpdate, data, features, managers);
+            } catch (BufferOverflowException e) {
+                Common.LOG.warn("A PacketDataManager wrote more data than its packetSize reported! Falling back to the scratch buffer.", e);
+                return null;
+            }
+            // The frame lengths are the real ones, so a manager reporting too much only costs a trim.
+            return length == size ? data : Arrays.copyOf(data, length);
+        } finally {
+            ProtocolFeatures.endActive(previous);
         }
     }
 
     public static int writeToBuffer(Chunk chunk, int subChunkMask, boolean forceUpdate, byte[] data) {
+        val features = ProtocolFeatures.encodeFeatures();
+        val previous = ProtocolFeatures.beginActive(features);
+        try {
+            return writeFrame(chunk, subChunkMask, forceUpdate, data, features, ProtocolFeatures.encodeManagers());
+        } finally {
+            ProtocolFeatures.endActive(previous);
+        }
+    }
+
+    private static int writeFrame(Chunk chunk, int subChunkMask, boolean forceUpdate, byte[] data, int features, ManagerSet managers) {
         val buf = ByteBuffer.wrap(data);
         buf.order(ByteOrder.LITTLE_ENDIAN);
-        buf.putInt(packetManagers.size());
-        for (val pair : packetManagers.entrySet()) {
-            val ord = pair.getKey();
-            val managerInfo = pair.getValue();
-            writeString(buf, ord.id);
+        val table = packetManagerTable;
+        val idBytes = packetManagerIdBytes;
+        writeVarInt(buf, features);
+        buf.put(managers.packetCountBytes);
+        for (int networkId = 0; networkId < table.length; networkId++) {
+            if (!managers.hasPacket(networkId)) {
+                continue;
+            }
+            val managerInfo = table[networkId];
+            buf.put(idBytes[networkId]);
             int start = buf.position() + 4;
             val slice = createSlice(buf, start, managerInfo.maxPacketSize);
             managerInfo.manager.writeToBuffer(chunk, subChunkMask, forceUpdate, slice);
@@ -243,134 +773,350 @@ public class DataRegistryImpl {
     public static int writeToBufferCubic(Chunk chunk, ExtendedBlockStorage blockStorage, byte[] data) {
         val buf = ByteBuffer.wrap(data);
         buf.order(ByteOrder.LITTLE_ENDIAN);
-        buf.putInt(cubicPacketManagers.size());
-        for (val pair : cubicPacketManagers.entrySet()) {
-            val ord = pair.getKey();
-            val managerInfo = pair.getValue();
-            writeString(buf, ord.id);
-            int start = buf.position() + 4;
-            val slice = createSlice(buf, start, managerInfo.maxPacketSize);
-            managerInfo.manager.writeToBuffer(chunk, blockStorage, slice);
-            int length = slice.position();
-            buf.putInt(length);
-            buf.position(start + length);
+        val table = cubicPacketManagerTable;
+        val idBytes = cubicPacketManagerIdBytes;
+        val features = ProtocolFeatures.encodeFeatures();
+        val managers = ProtocolFeatures.encodeManagers();
+        writeVarInt(buf, features);
+        buf.put(managers.cubicCountBytes);
+        val previous = ProtocolFeatures.beginActive(features);
+        try {
+            for (int networkId = 0; networkId < table.length; networkId++) {
+                if (!managers.hasCubic(networkId)) {
+                    continue;
+                }
+                val managerInfo = table[networkId];
+                buf.put(idBytes[networkId]);
+                int start = buf.position() + 4;
+                val slice = createSlice(buf, start, managerInfo.maxPacketSize);
+                managerInfo.manager.writeToBuffer(chunk, blockStorage, slice);
+                int length = slice.position();
+                buf.putInt(length);
+                buf.position(start + length);
+            }
+        } finally {
+            ProtocolFeatures.endActive(previous);
         }
         return buf.position();
     }
 
     public static void writeBlockToPacket(Chunk chunk, int x, int y, int z, S23PacketBlockChange packet) {
-        for (val manager : blockPacketManagers.values()) {
-            manager.writeBlockToPacket(chunk, x, y, z, packet);
+        val table = blockPacketManagerTable;
+        for (int i = 0; i < table.length; i++) {
+            table[i].writeBlockToPacket(chunk, x, y, z, packet);
         }
     }
 
     public static void readBlockFromPacket(Chunk chunk, int x, int y, int z, S23PacketBlockChange packet) {
-        for (val manager : blockPacketManagers.values()) {
-            manager.readBlockFromPacket(chunk, x, y, z, packet);
+        val table = blockPacketManagerTable;
+        for (int i = 0; i < table.length; i++) {
+            table[i].readBlockFromPacket(chunk, x, y, z, packet);
         }
     }
 
     public static void writeBlockPacketToBuffer(S23PacketBlockChange packet, PacketBuffer buffer) throws IOException {
-        buffer.writeInt(blockPacketManagers.size());
-        for (val pair : blockPacketManagers.entrySet()) {
-            val ord = pair.getKey();
-            val manager = pair.getValue();
-            buffer.writeStringToBuffer(ord.id);
-            manager.writeBlockPacketToBuffer(packet, buffer);
+        val table = blockPacketManagerTable;
+        val idBytes = blockPacketManagerIdBytes;
+        val managers = ConnectionContext.managers();
+        buffer.writeBytes(managers.blockCountBytes);
+        for (int networkId = 0; networkId < table.length; networkId++) {
+            if (!managers.hasBlock(networkId)) {
+                continue;
+            }
+            buffer.writeBytes(idBytes[networkId]);
+            table[networkId].writeBlockPacketToBuffer(packet, buffer);
         }
     }
 
     public static void readBlockPacketFromBuffer(S23PacketBlockChange packet, PacketBuffer buffer) throws IOException {
-        int count = buffer.readInt();
+        val remote = remoteManagers();
+        int count = buffer.readVarIntFromBuffer();
         for (int i = 0; i < count; i++) {
-            val id = buffer.readStringFromBuffer(1024);
-            val manager = blockPacketManagers.get(id);
+            val networkId = buffer.readVarIntFromBuffer();
+            val manager = networkId < remote.blockPacketManagers.length ? remote.blockPacketManagers[networkId] : null;
+            if (manager == null) {
+                // Block data is not length-prefixed, so there is no way to skip over it.
+                throw new IOException("Received data for unknown BlockPacketDataManager " + remoteId(remote.blockIds, networkId) + "!");
+            }
             manager.readBlockPacketFromBuffer(packet, buffer);
         }
     }
 
+    public static void writeBlocksToBatch(Chunk chunk, BlockChangeBatch batch) {
+        val table = bulkBlockPacketManagerTable;
+        for (int i = 0; i < table.length; i++) {
+            table[i].writeBlocksToBatch(chunk, batch);
+        }
+    }
+
+    public static void readBlocksFromBatch(Chunk chunk, BlockChangeBatch batch) {
+        val table = bulkBlockPacketManagerTable;
+        for (int i = 0; i < table.length; i++) {
+            table[i].readBlocksFromBatch(chunk, batch);
+        }
+    }
+
+    /**
+     * Writes one column per manager, each prefixed with its network id, same as {@link #writeBlockPacketToBuffer}.
+     */
+    public static void writeBatchToBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        val table = bulkBlockPacketManagerTable;
+        val idBytes = blockPacketManagerIdBytes;
+        val managers = ConnectionContext.managers();
+        buffer.writeBytes(managers.blockCountBytes);
+        for (int networkId = 0; networkId < table.length; networkId++) {
+            if (!managers.hasBlock(networkId)) {
+                continue;
+            }
+            buffer.writeBytes(idBytes[networkId]);
+            table[networkId].writeBatchToBuffer(batch, buffer);
+        }
+    }
+
+    public static void readBatchFromBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        val remote = remoteManagers();
+        int count = buffer.readVarIntFromBuffer();
+        for (int i = 0; i < count; i++) {
+            val networkId = buffer.readVarIntFromBuffer();
+            val manager = networkId < remote.bulkBlockPacketManagers.length ? remote.bulkBlockPacketManagers[networkId] : null;
+            if (manager == null) {
+                // Columns are not length-prefixed either
+                throw new IOException("Received data for unknown BlockPacketDataManager " + remoteId(remote.blockIds, networkId) + "!");
+            }
+            manager.readBatchFromBuffer(batch, buffer);
+        }
+    }
+
     private static ByteBuffer createSlice(ByteBuffer buffer, int start, int length) {
         int oldLimit = buffer.limit();
         int oldPosition = buffer.position();
         buffer.position(start);
-        buffer.limit(start + length);
+        buffer.limit(Math.min(start + length, buffer.capacity()));
         ByteBuffer slice = buffer.slice();
         buffer.limit(oldLimit);
         buffer.position(oldPosition);
         return slice;
     }
 
-    private static NBTTagCompound createManagerNBT(boolean privileged, NBTTagCompound root, DataManager manager) {
+    /**
+     * @param domainTags The domain compounds already looked up in this root, indexed by the domainIndex of the managers.
+     */
+    private static NBTTagCompound createManagerNBT(boolean privileged, NBTTagCompound root, NBTTagCompound[] domainTags, int domainIndex, String domain, String id) {
         if (privileged) {
             return root;
         }
-        val domain = manager.domain();
-        val id = manager.id();
-        NBTTagCompound domainNBT;
-        if (root.hasKey(domain)) {
-            domainNBT = root.getCompoundTag(domain);
-        } else {
-            domainNBT = new NBTTagCompound();
-            root.setTag(domain, domainNBT);
+        var domainNBT = domainTags[domainIndex];
+        if (domainNBT == null) {
+            val existing = root.getTag(domain);
+            if (existing instanceof NBTTagCompound) {
+                domainNBT = (NBTTagCompound) existing;
+            } else {
+                domainNBT = new NBTTagCompound();
+                root.setTag(domain, domainNBT);
+            }
+            domainTags[domainIndex] = domainNBT;
         }
-        if (domainNBT.hasKey(id)) {
-            return domainNBT.getCompoundTag(id);
-        } else {
-            val subNBT = new NBTTagCompound();
-            domainNBT.setTag(id, subNBT);
-            return subNBT;
+        val existing = domainNBT.getTag(id);
+        if (existing instanceof NBTTagCompound) {
+            return (NBTTagCompound) existing;
         }
+        val subNBT = new NBTTagCompound();
+        domainNBT.setTag(id, subNBT);
+        return subNBT;
     }
 
-    private static NBTTagCompound getManagerNBT(boolean privileged, NBTTagCompound root, DataManager manager) {
+    /**
+     * @param domainTags The domain compounds already looked up in this root, indexed by the domainIndex of the managers.
+     * @return The data of the manager, or {@link EmptyNBTTagCompound#INSTANCE} if there is none.
+     */
+    private static NBTTagCompound getManagerNBT(boolean privileged, NBTTagCompound root, NBTTagCompound[] domainTags, int domainIndex, String domain, String id) {
         if (privileged) {
             return root;
         }
-        val domain = manager.domain();
-        if (!root.hasKey(domain)) {
-            return new NBTTagCompound();
-        }
-        val domainNBT = root.getCompoundTag(domain);
-        if (!domainNBT.hasKey(manager.id())) {
-            return new NBTTagCompound();
+        var domainNBT = domainTags[domainIndex];
+        if (domainNBT == null) {
+            val existing = root.getTag(domain);
+            domainNBT = existing instanceof NBTTagCompound ? (NBTTagCompound) existing : EmptyNBTTagCompound.INSTANCE;
+            domainTags[domainIndex] = domainNBT;
         }
-        return domainNBT.getCompoundTag(manager.id());
+        val existing = domainNBT.getTag(id);
+        return existing instanceof NBTTagCompound ? (NBTTagCompound) existing : EmptyNBTTagCompound.INSTANCE;
+    }
+
+    private static NBTTagCompound[] domainTags(int domainCount) {
+        return domainCount == 0 ? NO_DOMAIN_TAGS : new NBTTagCompound[domainCount];
     }
 
     public static void writeSubChunkToNBT(Chunk chunk, ExtendedBlockStorage subChunk, NBTTagCompound nbt) {
-        for (val manager : subChunkNBTManagers.values()) {
-            manager.writeSubChunkToNBT(chunk, subChunk, createManagerNBT(manager.subChunkPrivilegedAccess(), nbt, manager));
+        val table = subChunkNBTManagerTable;
+        val domainTags = domainTags(subChunkNBTDomainCount);
+        ByteBuffer binary = null;
+        if (binarySubChunkManagerCount > 0) {
+            binary = ByteBuffer.wrap(ScratchBuffers.binaryBuffer());
+            binary.order(ByteOrder.LITTLE_ENDIAN);
+            writeVarInt(binary, binarySubChunkManagerCount);
+        }
+        for (int i = 0; i < table.length; i++) {
+            val info = table[i];
+            if (info.binary != null) {
+                binary.put(info.binaryName);
+                val start = binary.position() + 4;
+                val slice = createSlice(binary, start, info.maxBinarySize);
+                info.binary.writeSubChunkToBuffer(chunk, subChunk, slice);
+                val length = slice.position();
+                binary.putInt(length);
+                binary.position(start + length);
+            } else {
+                info.manager.writeSubChunkToNBT(chunk, subChunk, createManagerNBT(info.privileged, nbt, domainTags, info.domainIndex, info.domain, info.id));
+            }
+        }
+        if (binary != null) {
+            nbt.setByteArray(BINARY_SUBCHUNK_KEY, Arrays.copyOf(binary.array(), binary.position()));
         }
     }
 
     public static void readSubChunkFromNBT(Chunk chunk, ExtendedBlockStorage subChunk, NBTTagCompound nbt) {
-        for (val manager : subChunkNBTManagers.values()) {
-            manager.readSubChunkFromNBT(chunk, subChunk, getManagerNBT(manager.subChunkPrivilegedAccess(), nbt, manager));
+        val table = subChunkNBTManagerTable;
+        val binary = binarySubChunkManagerCount > 0 ? readBinaryOffsets(table, nbt) : null;
+        val domainTags = domainTags(subChunkNBTDomainCount);
+        for (int i = 0; i < table.length; i++) {
+            val info = table[i];
+            if (binary != null && binary.lengths[i] >= 0) {
+                info.binary.readSubChunkFromBuffer(chunk, subChunk, createSlice(binary.buffer, binary.starts[i], binary.lengths[i]));
+            } else {
+                info.manager.readSubChunkFromNBT(chunk, subChunk, getManagerNBT(info.privileged, nbt, domainTags, info.domainIndex, info.domain, info.id));
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class BinarySubChunk {
+        public final ByteBuffer buffer;
+        public final int[] starts;
+        /**
+         * -1 for managers without binary data in the subChunk
+         */
+        public final int[] lengths;
+    }
+
+    /**
+     * Finds the data of each binary manager in the subChunk's {@link #BINARY_SUBCHUNK_KEY} tag. Data of unknown managers
+     * is skipped.
+     */
+    private static @Nullable BinarySubChunk readBinaryOffsets(SubChunkNBTManagerInfo[] table, NBTTagCompound nbt) {
+        if (!nbt.hasKey(BINARY_SUBCHUNK_KEY, Constants.NBT.TAG_BYTE_ARRAY)) {
+            return null;
+        }
+        val data = nbt.getByteArray(BINARY_SUBCHUNK_KEY);
+        val buf = ByteBuffer.wrap(data);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        val starts = new int[table.length];
+        val lengths = new int[table.length];
+        Arrays.fill(lengths, -1);
+        int count = readVarInt(buf);
+        for (int i = 0; i < count; i++) {
+            val nameStart = buf.position();
+            val nameLength = readVarInt(buf);
+            buf.position(buf.position() + nameLength);
+            val nameEnd = buf.position();
+            val length = buf.getInt();
+            val index = binaryManagerIndex(table, data, nameStart, nameEnd - nameStart);
+            if (index >= 0) {
+                starts[index] = buf.position();
+                lengths[index] = length;
+            }
+            buf.position(buf.position() + length);
+        }
+        return new BinarySubChunk(buf, starts, lengths);
+    }
+
+    private static int binaryManagerIndex(SubChunkNBTManagerInfo[] table, byte[] data, int offset, int length) {
+        outer:
+        for (int i = 0; i < table.length; i++) {
+            val name = table[i].binaryName;
+            if (name == null || name.length != length) {
+                continue;
+            }
+            for (int j = 0; j < length; j++) {
+                if (name[j] != data[offset + j]) {
+                    continue outer;
+                }
+            }
+            return i;
         }
+        return -1;
     }
 
     public static void writeChunkToNBT(Chunk chunk, NBTTagCompound chunkNBT) {
-        for (val manager : chunkNBTManagers.values()) {
-            manager.writeChunkToNBT(chunk, createManagerNBT(manager.chunkPrivilegedAccess(), chunkNBT, manager));
+        val table = chunkNBTManagerTable;
+        val domainTags = domainTags(chunkNBTDomainCount);
+        for (int i = 0; i < table.length; i++) {
+            val info = table[i];
+            info.manager.writeChunkToNBT(chunk, createManagerNBT(info.privileged, chunkNBT, domainTags, info.domainIndex, info.domain, info.id));
         }
     }
 
     public static void readChunkFromNBT(Chunk chunk, NBTTagCompound chunkNBT) {
-        for (val manager : chunkNBTManagers.values()) {
-            manager.readChunkFromNBT(chunk, getManagerNBT(manager.chunkPrivilegedAccess(), chunkNBT, manager));
+        val table = chunkNBTManagerTable;
+        val domainTags = domainTags(chunkNBTDomainCount);
+        for (int i = 0; i < table.length; i++) {
+            val info = table[i];
+            info.manager.readChunkFromNBT(chunk, getManagerNBT(info.privileged, chunkNBT, domainTags, info.domainIndex, info.domain, info.id));
         }
     }
 
     public static void cloneChunk(Chunk from, Chunk to) {
-        for (val manager : chunkNBTManagers.values()) {
-            manager.cloneChunk(from, to);
+        val table = chunkNBTManagerTable;
+        for (int i = 0; i < table.length; i++) {
+            table[i].manager.cloneChunk(from, to);
         }
     }
 
     public static void cloneSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
-        for (val manager : subChunkNBTManagers.values()) {
-            manager.cloneSubChunk(fromChunk, from, to);
+        val table = subChunkNBTManagerTable;
+        for (int i = 0; i < table.length; i++) {
+            table[i].manager.cloneSubChunk(fromChunk, from, to);
+        }
+    }
+
+    /**
+     * Copy-on-write variant of {@link #cloneSubChunk}. The lock of {@code from} keeps other threads from copying its
+     * data while it gets shared, and suppresses the write barrier of the managers' own accesses.
+     */
+    public static void shareSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
+        val table = subChunkNBTManagerTable;
+        synchronized (from) {
+            for (int i = 0; i < table.length; i++) {
+                table[i].manager.shareSubChunk(fromChunk, from, to);
+            }
+            val source = (CopyOnWriteSubChunk) from;
+            if (source.chunkapi$shareState() != CopyOnWriteSubChunk.SNAPSHOT) {
+                source.chunkapi$setShareState(CopyOnWriteSubChunk.SHARED);
+            }
+            ((CopyOnWriteSubChunk) to).chunkapi$setShareState(CopyOnWriteSubChunk.SNAPSHOT);
+        }
+        sharedSubChunks.increment();
+    }
+
+    /**
+     * The write barrier of copy-on-write subChunks, see {@link CopyOnWriteSubChunk}.
+     */
+    public static void unshareSubChunk(ExtendedBlockStorage subChunk) {
+        val cow = (CopyOnWriteSubChunk) subChunk;
+        if (cow.chunkapi$shareState() == CopyOnWriteSubChunk.NOT_SHARED) {
+            return;
+        }
+        val table = subChunkNBTManagerTable;
+        synchronized (subChunk) {
+            if (cow.chunkapi$shareState() == CopyOnWriteSubChunk.NOT_SHARED) {
+                return;
+            }
+            for (int i = 0; i < table.length; i++) {
+                table[i].manager.unshareSubChunk(subChunk);
+            }
+            cow.chunkapi$setShareState(CopyOnWriteSubChunk.NOT_SHARED);
         }
+        unsharedSubChunks.increment();
     }
 
     public static Set<String> getRegisteredManagers() {
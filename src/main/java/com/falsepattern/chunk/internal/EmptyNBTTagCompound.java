@@ -0,0 +1,85 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+
+/**
+ * The compound passed to non-privileged managers that have no saved data. Shared by all of them, so writes are ignored,
+ * the same way they used to end up in a throwaway compound.
+ */
+final class EmptyNBTTagCompound extends NBTTagCompound {
+    static final EmptyNBTTagCompound INSTANCE = new EmptyNBTTagCompound();
+
+    private EmptyNBTTagCompound() {
+    }
+
+    @Override
+    public void setTag(String key, NBTBase value) {
+    }
+
+    @Override
+    public void setByte(String key, byte value) {
+    }
+
+    @Override
+    public void setShort(String key, short value) {
+    }
+
+    @Override
+    public void setInteger(String key, int value) {
+    }
+
+    @Override
+    public void setLong(String key, long value) {
+    }
+
+    @Override
+    public void setFloat(String key, float value) {
+    }
+
+    @Override
+    public void setDouble(String key, double value) {
+    }
+
+    @Override
+    public void setString(String key, String value) {
+    }
+
+    @Override
+    public void setByteArray(String key, byte[] value) {
+    }
+
+    @Override
+    public void setIntArray(String key, int[] value) {
+    }
+
+    @Override
+    public void setBoolean(String key, boolean value) {
+    }
+
+    @Override
+    public void removeTag(String key) {
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal;
+
+import com.falsepattern.chunk.api.BlockChangeBatch;
+import com.falsepattern.chunk.api.DataManager;
+import com.falsepattern.chunk.internal.impl.CustomPacketBlockChange;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import net.minecraft.network.PacketBuffer;
+import net.minecraft.network.play.server.S23PacketBlockChange;
+import net.minecraft.world.chunk.Chunk;
+
+import java.io.IOException;
+
+/**
+ * Runs a manager that only implements {@link DataManager.BlockPacketDataManager} on a {@link BlockChangeBatch}, by
+ * giving it one S23PacketBlockChange per change. The packets are shared by all the legacy managers of a batch, same as
+ * the sub-packets of S22PacketMultiBlockChange used to be.
+ */
+@RequiredArgsConstructor
+public class LegacyBlockPacketAdapter implements DataManager.BulkBlockPacketDataManager {
+    private static final Object PACKETS = new Object();
+
+    private final DataManager.BlockPacketDataManager delegate;
+
+    public static DataManager.BulkBlockPacketDataManager wrap(DataManager.BlockPacketDataManager manager) {
+        if (manager == null || manager instanceof DataManager.BulkBlockPacketDataManager) {
+            return (DataManager.BulkBlockPacketDataManager) manager;
+        }
+        return new LegacyBlockPacketAdapter(manager);
+    }
+
+    private static S23PacketBlockChange[] packets(BlockChangeBatch batch) {
+        S23PacketBlockChange[] packets = batch.getColumn(PACKETS);
+        if (packets == null) {
+            packets = new S23PacketBlockChange[batch.size()];
+            for (int i = 0; i < packets.length; i++) {
+                val packet = new S23PacketBlockChange();
+                val cPacket = (CustomPacketBlockChange) packet;
+                cPacket.chunkapi$x(batch.x(i));
+                cPacket.chunkapi$y(batch.y(i));
+                cPacket.chunkapi$z(batch.z(i));
+                packet.field_148883_d = batch.block(i);
+                packet.field_148884_e = batch.metadata(i);
+                packets[i] = packet;
+            }
+            batch.setColumn(PACKETS, packets);
+        }
+        return packets;
+    }
+
+    @Override
+    public String domain() {
+        return delegate.domain();
+    }
+
+    @Override
+    public String id() {
+        return delegate.id();
+    }
+
+    @Override
+    public void writeBlocksToBatch(Chunk chunk, BlockChangeBatch batch) {
+        val packets = packets(batch);
+        for (int i = 0; i < packets.length; i++) {
+            delegate.writeBlockToPacket(chunk, batch.x(i), batch.y(i), batch.z(i), packets[i]);
+        }
+    }
+
+    @Override
+    public void readBlocksFromBatch(Chunk chunk, BlockChangeBatch batch) {
+        val packets = packets(batch);
+        for (int i = 0; i < packets.length; i++) {
+            val packet = packets[i];
+            // The vanilla columns may have been read after the packets were created
+            val block = batch.block(i);
+            if (block != null) {
+                packet.field_148883_d = block;
+            }
+            packet.field_148884_e = batch.metadata(i);
+            delegate.readBlockFromPacket(chunk, batch.x(i), batch.y(i), batch.z(i), packet);
+        }
+    }
+
+    @Override
+    public void writeBatchToBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        for (val packet : packets(batch)) {
+            delegate.writeBlockPacketToBuffer(packet, buffer);
+        }
+    }
+
+    @Override
+    public void readBatchFromBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        val packets = packets(batch);
+        for (int i = 0; i < packets.length; i++) {
+            val packet = packets[i];
+            delegate.readBlockPacketFromBuffer(packet, buffer);
+            // Replacements of minecraft:blockid only fill in the packet, the client places what's in the batch
+            if (packet.field_148883_d != null) {
+                batch.setBlock(i, packet.field_148883_d);
+            }
+            batch.setMetadata(i, packet.field_148884_e);
+        }
+    }
+
+    @Override
+    public void writeBlockToPacket(Chunk chunk, int x, int y, int z, S23PacketBlockChange packet) {
+        delegate.writeBlockToPacket(chunk, x, y, z, packet);
+    }
+
+    @Override
+    public void readBlockFromPacket(Chunk chunk, int x, int y, int z, S23PacketBlockChange packet) {
+        delegate.readBlockFromPacket(chunk, x, y, z, packet);
+    }
+
+    @Override
+    public void writeBlockPacketToBuffer(S23PacketBlockChange packet, PacketBuffer buffer) throws IOException {
+        delegate.writeBlockPacketToBuffer(packet, buffer);
+    }
+
+    @Override
+    public void readBlockPacketFromBuffer(S23PacketBlockChange packet, PacketBuffer buffer) throws IOException {
+        delegate.readBlockPacketFromBuffer(packet, buffer);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal;
+
+import lombok.val;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The packet, cubic packet and block packet managers a client can decode, by network id. Data of other managers is left
+ * out of the packets sent to it.
+ * <p>
+ * Sets are interned, so every distinct set computes its frame header once, and sets can be compared by identity.
+ */
+public final class ManagerSet {
+    private static final Map<List<BitSet>, ManagerSet> interned = new ConcurrentHashMap<>();
+
+    private final BitSet packetBits;
+    private final BitSet cubicBits;
+    private final BitSet blockBits;
+    private final boolean[] packet;
+    private final boolean[] cubic;
+    private final boolean[] block;
+    final byte[] packetCountBytes;
+    final byte[] cubicCountBytes;
+    final byte[] blockCountBytes;
+
+    private ManagerSet(BitSet packetBits, BitSet cubicBits, BitSet blockBits, int packetCount, int cubicCount, int blockCount) {
+        this.packetBits = packetBits;
+        this.cubicBits = cubicBits;
+        this.blockBits = blockBits;
+        packet = toArray(packetBits, packetCount);
+        cubic = toArray(cubicBits, cubicCount);
+        block = toArray(blockBits, blockCount);
+        packetCountBytes = DataRegistryImpl.varIntBytes(packetBits.cardinality());
+        cubicCountBytes = DataRegistryImpl.varIntBytes(cubicBits.cardinality());
+        blockCountBytes = DataRegistryImpl.varIntBytes(blockBits.cardinality());
+    }
+
+    /**
+     * @return The interned set. Bits past the end of the manager tables are ignored.
+     */
+    public static ManagerSet of(BitSet packet, BitSet cubic, BitSet block) {
+        val packetCount = DataRegistryImpl.packetManagerCount();
+        val cubicCount = DataRegistryImpl.cubicPacketManagerCount();
+        val blockCount = DataRegistryImpl.blockPacketManagerCount();
+        val key = Arrays.asList(clamp(packet, packetCount), clamp(cubic, cubicCount), clamp(block, blockCount));
+        return interned.computeIfAbsent(key, k -> new ManagerSet(k.get(0), k.get(1), k.get(2), packetCount, cubicCount, blockCount));
+    }
+
+    static ManagerSet all(int packetCount, int cubicCount, int blockCount) {
+        val packet = new BitSet();
+        packet.set(0, packetCount);
+        val cubic = new BitSet();
+        cubic.set(0, cubicCount);
+        val block = new BitSet();
+        block.set(0, blockCount);
+        return of(packet, cubic, block);
+    }
+
+    private static BitSet clamp(BitSet bits, int length) {
+        val copy = (BitSet) bits.clone();
+        if (copy.length() > length) {
+            copy.clear(length, copy.length());
+        }
+        return copy;
+    }
+
+    private static boolean[] toArray(BitSet bits, int length) {
+        val array = new boolean[length];
+        for (int i = bits.nextSetBit(0); i >= 0 && i < length; i = bits.nextSetBit(i + 1)) {
+            array[i] = true;
+        }
+        return array;
+    }
+
+    public ManagerSet union(ManagerSet other) {
+        if (other == this) {
+            return this;
+        }
+        val packet = (BitSet) packetBits.clone();
+        packet.or(other.packetBits);
+        val cubic = (BitSet) cubicBits.clone();
+        cubic.or(other.cubicBits);
+        val block = (BitSet) blockBits.clone();
+        block.or(other.blockBits);
+        return of(packet, cubic, block);
+    }
+
+    public boolean hasPacket(int networkId) {
+        return packet[networkId];
+    }
+
+    public boolean hasCubic(int networkId) {
+        return cubic[networkId];
+    }
+
+    public boolean hasBlock(int networkId) {
+        return block[networkId];
+    }
+}
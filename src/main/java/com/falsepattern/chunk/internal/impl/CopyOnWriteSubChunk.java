@@ -0,0 +1,43 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.impl;
+
+/**
+ * Sharing state of an ExtendedBlockStorage after a copy-on-write clone, see
+ * {@link com.falsepattern.chunk.internal.DataRegistryImpl#shareSubChunk}.
+ */
+public interface CopyOnWriteSubChunk {
+    int NOT_SHARED = 0;
+    /**
+     * Shares its data with a snapshot. Copies it before it gets modified, or handed out through a getter.
+     */
+    int SHARED = 1;
+    /**
+     * Shares the data of another subChunk. Copies it before it gets modified.
+     */
+    int SNAPSHOT = 2;
+
+    int chunkapi$shareState();
+
+    void chunkapi$setShareState(int state);
+}
@@ -0,0 +1,34 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.impl;
+
+public interface CustomChunk {
+    /**
+     * Changes whenever the blocks, metadata, light or biomes of the chunk change, or the chunk gets marked as modified.
+     * Stamps are unique across all chunks, so a reloaded chunk never reuses an older stamp. Writes that go straight to
+     * the subChunks are tracked by {@link StampedSubChunk}.
+     */
+    long chunkapi$stamp();
+
+    void chunkapi$bumpStamp();
+}
@@ -22,11 +22,12 @@
 
 package com.falsepattern.chunk.internal.impl;
 
-import net.minecraft.network.play.server.S23PacketBlockChange;
+import com.falsepattern.chunk.api.BlockChangeBatch;
+
 import net.minecraft.world.chunk.Chunk;
 
 public interface CustomPacketMultiBlockChange {
     void chunkapi$init(int count, short[] crammedPositions, Chunk chunk);
 
-    S23PacketBlockChange[] chunkapi$subPackets();
+    BlockChangeBatch chunkapi$batch();
 }
@@ -0,0 +1,43 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.impl;
+
+/**
+ * Stamp of an ExtendedBlockStorage, used together with {@link CustomChunk#chunkapi$stamp()}.
+ */
+public interface StampedSubChunk {
+    /**
+     * @return 0 if the subChunk was written to through one of its setters since the last
+     * {@link #chunkapi$setStamp(long)}, the stamp that was set otherwise.
+     */
+    long chunkapi$stamp();
+
+    void chunkapi$setStamp(long stamp);
+
+    /**
+     * @return The paletted block id size remembered for the given stamp, or -1 if none is.
+     */
+    int chunkapi$palettedSize(long stamp);
+
+    void chunkapi$setPalettedSize(long stamp, int size);
+}
@@ -0,0 +1,210 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.Common;
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Optional asynchronous chunk saving, enabled with {@code -D}{@value #ENABLED_PROPERTY}{@code =true}.
+ * <p>
+ * The server thread only copies the manager data of the chunk into a detached snapshot chunk, through
+ * {@link DataRegistryImpl#cloneChunk} and the copy-on-write {@link DataRegistryImpl#shareSubChunk}, and writes the
+ * entities and tile entities as usual. The subchunk and chunk managers then write their NBT from the snapshot on a
+ * worker thread, and the finished tag is handed to the region writer from there.
+ * <p>
+ * Saves of the same chunk are handed to the region writer in order. Loading a chunk, checking whether it exists, and
+ * flushing the region writer wait for the saves still in flight.
+ */
+public class AsyncChunkSaver {
+    public static final String ENABLED_PROPERTY = "chunkapi.save.async";
+    public static final String THREADS_PROPERTY = "chunkapi.save.async.threads";
+    public static final int QUEUE_SIZE = 256;
+
+    private static final boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final LongAdder saves = Metrics.counter("save.count");
+    private static final LongAdder tickNanos = Metrics.counter("save.tick.nanos");
+    private static final LongAccumulator peakTickNanos = Metrics.maximum("save.tick.nanos.peak");
+    private static final LongAdder asyncSaves = Metrics.counter("save.async.count");
+    private static final LongAdder asyncNanos = Metrics.counter("save.async.nanos");
+    private static final LongAdder callerRuns = Metrics.counter("save.async.caller_runs");
+    private static final LongAdder failures = Metrics.counter("save.async.failures");
+    private static final LongAdder waits = Metrics.counter("save.wait.count");
+    private static final LongAdder waitNanos = Metrics.counter("save.wait.nanos");
+
+    private static final ThreadLocal<Boolean> saving = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Snapshot> pending = new ThreadLocal<>();
+
+    // When the queue is full, the server thread serializes the chunk itself, instead of piling up snapshots
+    private static final ThreadPoolExecutor executor = WorkerPools.boundedExecutor("ChunkAPI Chunk Saver", WorkerPools.threads(THREADS_PROPERTY), QUEUE_SIZE, callerRuns);
+
+    @RequiredArgsConstructor
+    public static class Snapshot {
+        public final Chunk chunk;
+        public final NBTTagCompound level;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Marks the current thread as running AnvilChunkLoader.saveChunk. Chunks written to NBT outside of it (by other
+     * mods, for example) are always written synchronously, as the caller expects a complete tag.
+     */
+    public static void beginSave() {
+        saving.set(true);
+    }
+
+    public static void endSave() {
+        saving.set(false);
+        pending.remove();
+    }
+
+    public static boolean isSaving() {
+        return enabled && saving.get();
+    }
+
+    /**
+     * Copies the manager data of the chunk. The snapshot is remembered for {@link #takeSnapshot()}.
+     *
+     * @param level The Level tag the data will be merged into.
+     */
+    public static Snapshot snapshot(Chunk chunk, NBTTagCompound level) {
+        val copy = new Chunk(chunk.worldObj, chunk.xPosition, chunk.zPosition);
+        DataRegistryImpl.cloneChunk(chunk, copy);
+        val hasSky = !chunk.worldObj.provider.hasNoSky;
+        val subChunks = chunk.getBlockStorageArray();
+        val copies = new ExtendedBlockStorage[subChunks.length];
+        for (int i = 0; i < subChunks.length; i++) {
+            val subChunk = subChunks[i];
+            if (subChunk != null) {
+                copies[i] = new ExtendedBlockStorage(subChunk.getYLocation(), hasSky);
+                DataRegistryImpl.shareSubChunk(chunk, subChunk, copies[i]);
+            }
+        }
+        copy.setStorageArrays(copies);
+        val snapshot = new Snapshot(copy, level);
+        pending.set(snapshot);
+        return snapshot;
+    }
+
+    public static Snapshot takeSnapshot() {
+        val snapshot = pending.get();
+        pending.remove();
+        return snapshot;
+    }
+
+    /**
+     * Serializes the snapshot on a worker thread, merges it into its Level tag, then passes the root tag to
+     * {@code complete}, after every earlier save of the same chunk was completed.
+     *
+     * @param inFlight   The saves in flight of the chunk loader. Added to on the saving thread, and removed from by the
+     *                   worker that completes the save, so it must be a concurrent map.
+     * @param serializer Writes the manager data of the snapshot chunk into the given tag.
+     */
+    public static void submit(Map<ChunkCoordIntPair, CompletableFuture<Void>> inFlight, ChunkCoordIntPair coord, Snapshot snapshot, NBTTagCompound root,
+                              BiConsumer<Chunk, NBTTagCompound> serializer, Consumer<NBTTagCompound> complete) {
+        asyncSaves.increment();
+        val serialized = CompletableFuture.supplyAsync(() -> {
+            val start = System.nanoTime();
+            val data = new NBTTagCompound();
+            serializer.accept(snapshot.chunk, data);
+            asyncNanos.add(System.nanoTime() - start);
+            return data;
+        }, executor);
+        val previous = inFlight.get(coord);
+        val ordered = previous == null ? serialized : serialized.thenCombine(previous.handle((v, t) -> null), (data, ignored) -> data);
+        val done = ordered.thenAccept(data -> {
+            for (val key : new ArrayList<Object>(data.func_150296_c())) {
+                snapshot.level.setTag((String) key, data.getTag((String) key));
+            }
+            complete.accept(root);
+        });
+        inFlight.put(coord, done);
+        done.whenComplete((v, t) -> {
+            inFlight.remove(coord, done);
+            if (t != null) {
+                failures.increment();
+                Common.LOG.error("Failed to save chunk " + coord.chunkXPos + ", " + coord.chunkZPos, t);
+            }
+        });
+    }
+
+    /**
+     * Waits until the saves of the chunk in flight are handed to the region writer.
+     */
+    public static void await(Map<ChunkCoordIntPair, CompletableFuture<Void>> inFlight, ChunkCoordIntPair coord) {
+        val future = inFlight.get(coord);
+        if (future != null) {
+            join(future);
+        }
+    }
+
+    public static void awaitAll(Map<ChunkCoordIntPair, CompletableFuture<Void>> inFlight) {
+        for (val future : new ArrayList<>(inFlight.values())) {
+            join(future);
+        }
+    }
+
+    private static void join(CompletableFuture<Void> future) {
+        if (future.isDone()) {
+            return;
+        }
+        waits.increment();
+        val start = System.nanoTime();
+        try {
+            future.join();
+        } catch (Exception ignored) {
+            // Already logged
+        }
+        waitNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * Records the time spent saving a chunk on the calling (usually the server) thread.
+     */
+    public static void recordTick(long nanos) {
+        saves.increment();
+        tickNanos.add(nanos);
+        peakTickNanos.accumulate(nanos);
+    }
+}
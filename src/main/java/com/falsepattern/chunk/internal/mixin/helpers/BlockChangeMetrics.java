@@ -0,0 +1,42 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size counters for the encoded block change packets. Divide the bytes by the packet count for the average packet size.
+ */
+public class BlockChangeMetrics {
+    private static final LongAdder encodedPackets = Metrics.counter("blockchange.encoded");
+    private static final LongAdder encodedPositionBytes = Metrics.counter("blockchange.encoded.position.bytes");
+    private static final LongAdder encodedBytes = Metrics.counter("blockchange.encoded.bytes");
+
+    public static void recordEncoded(int positionBytes, int totalBytes) {
+        encodedPackets.increment();
+        encodedPositionBytes.add(positionBytes);
+        encodedBytes.add(totalBytes);
+    }
+}
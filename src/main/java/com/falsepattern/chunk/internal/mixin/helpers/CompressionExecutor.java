@@ -0,0 +1,75 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.Common;
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.val;
+
+import net.minecraft.server.MinecraftServer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deflates chunk packets right after they are built, instead of on the netty thread when they get written.
+ * <p>
+ * Packets still go through netty in order, writing one just waits on its deflate gate if it's not done yet. When the
+ * queue is full, the thread building the packets deflates them itself, which slows it down instead of piling up work.
+ */
+public class CompressionExecutor {
+    public static final String THREADS_PROPERTY = "chunkapi.compression.threads";
+    public static final int QUEUE_SIZE = 512;
+
+    private static final LongAdder submitted = Metrics.counter("compression.async.submitted");
+    private static final LongAdder callerRuns = Metrics.counter("compression.async.caller_runs");
+    private static final LongAccumulator peakQueue = Metrics.maximum("compression.async.queue.peak");
+
+    private static final ThreadPoolExecutor executor = WorkerPools.boundedExecutor("ChunkAPI Compression", WorkerPools.threads(THREADS_PROPERTY), QUEUE_SIZE, callerRuns);
+
+    /**
+     * Singleplayer hands the packet objects to the client directly, so they never get written or deflated there.
+     */
+    public static boolean isEnabled() {
+        val server = MinecraftServer.getServer();
+        return server != null && server.isDedicatedServer();
+    }
+
+    public static void submit(Runnable deflate) {
+        submitted.increment();
+        executor.execute(() -> {
+            try {
+                deflate.run();
+            } catch (Throwable t) {
+                // The netty thread deflates it again when writing the packet
+                Common.LOG.error("Failed to deflate chunk packet", t);
+            }
+        });
+        peakQueue.accumulate(executor.getQueue().size());
+    }
+
+    public static int queueSize() {
+        return executor.getQueue().size();
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
+import io.netty.buffer.ByteBuf;
+import lombok.val;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+public class CompressionHelper {
+    /**
+     * Payload format flags, written into the chunk packet headers.
+     */
+    public static final int STORED = 0;
+    public static final int DEFLATED = 1;
+    /**
+     * Deflated with the {@link PresetDictionary}. The first byte of the data is the dictionary version.
+     */
+    public static final int DEFLATED_DICTIONARY = 2;
+
+    /**
+     * Upper bound of the deflated size of {@code length} bytes, same as zlib's compressBound.
+     */
+    public static int deflateBound(int length) {
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+    }
+
+    /**
+     * Stores or deflates the given arrays as one payload, with the level picked by {@link CompressionPolicy}.
+     *
+     * @param length   The total length of the inputs
+     * @param features The {@link com.falsepattern.chunk.internal.network.ProtocolFeatures} of the recipients, decides
+     *                 whether the preset dictionary can be used.
+     */
+    public static Deflated compress(byte[][] inputs, int length, int features) {
+        val level = CompressionPolicy.level(length);
+        if (level == CompressionPolicy.NO_COMPRESSION) {
+            if (inputs.length == 1) {
+                return new Deflated(inputs[0], length, STORED);
+            }
+            val output = new byte[length];
+            int offset = 0;
+            for (val input : inputs) {
+                System.arraycopy(input, 0, output, offset, input.length);
+                offset += input.length;
+            }
+            return new Deflated(output, length, STORED);
+        }
+        if ((features & ProtocolFeatures.PRESET_DICTIONARY) != 0 && PresetDictionary.isAvailable()) {
+            return deflate(inputs, new byte[1 + deflateBound(length)], level, true);
+        }
+        return deflate(inputs, new byte[deflateBound(length)], level, false);
+    }
+
+    /**
+     * Deflates the given arrays as one continuous stream, without concatenating them first.
+     *
+     * @param output Where the deflated data goes. Grown if it's too small, use {@link #deflateBound(int)} to avoid that.
+     */
+    public static Deflated deflate(byte[][] inputs, byte[] output) {
+        return deflate(inputs, output, Deflater.DEFAULT_COMPRESSION, false);
+    }
+
+    public static Deflated deflate(byte[][] inputs, byte[] output, int level, boolean useDictionary) {
+        val deflater = ZlibPool.acquireDeflater(level);
+        try {
+            int offset = 0;
+            if (useDictionary) {
+                deflater.setDictionary(PresetDictionary.dictionary());
+                output[offset++] = (byte) PresetDictionary.version();
+            }
+            for (val input : inputs) {
+                deflater.setInput(input);
+                while (!deflater.needsInput()) {
+                    if (offset == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2 + 64);
+                    }
+                    offset += deflater.deflate(output, offset, output.length - offset);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (offset == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2 + 64);
+                }
+                offset += deflater.deflate(output, offset, output.length - offset);
+            }
+            return new Deflated(output, offset, useDictionary ? DEFLATED_DICTIONARY : DEFLATED);
+        } finally {
+            ZlibPool.release(deflater);
+        }
+    }
+
+    public static class Deflated {
+        public final byte[] data;
+        public final int length;
+        /**
+         * {@link #STORED}, {@link #DEFLATED} or {@link #DEFLATED_DICTIONARY}
+         */
+        public final int format;
+
+        public Deflated(byte[] data, int length, int format) {
+            this.data = data;
+            this.length = length;
+            this.format = format;
+        }
+    }
+
+    /**
+     * Reads the uncompressed length of a payload. The arrays are allocated before anything gets inflated, so the length
+     * sent by the other side must not exceed what its managers could have written.
+     */
+    public static int readLength(ByteBuf data, int maxLength) throws IOException {
+        return checkLength(data.readInt(), maxLength);
+    }
+
+    public static int checkLength(int length, int maxLength) throws IOException {
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Payload length " + length + " is out of bounds, the maximum is " + maxLength);
+        }
+        return length;
+    }
+
+    /**
+     * Reads a payload written by {@link #compress(byte[][], int, int)} into the given arrays, see {@link #inflate}.
+     */
+    public static void decompress(ByteBuf data, int format, int size, byte[][] outputs) throws IOException {
+        if (size < 0 || size > data.readableBytes()) {
+            throw new IOException("Compressed size " + size + " is out of bounds, " + data.readableBytes() + " bytes left in the packet");
+        }
+        switch (format) {
+            case STORED:
+                for (val output : outputs) {
+                    data.readBytes(output);
+                }
+                break;
+            case DEFLATED:
+                inflate(data, size, outputs, null);
+                break;
+            case DEFLATED_DICTIONARY: {
+                val version = data.readUnsignedByte();
+                if (version != PresetDictionary.version()) {
+                    throw new IOException("Payload uses chunk payload dictionary version " + version + ", but this side has version " + PresetDictionary.version());
+                }
+                inflate(data, size - 1, outputs, PresetDictionary.dictionary());
+                break;
+            }
+            default:
+                throw new IOException("Unknown payload format " + format);
+        }
+    }
+
+    /**
+     * Inflates the next {@code deflatedSize} bytes of the packet straight into the given arrays, filling them one after
+     * another. Each array must already be exactly as long as the data that belongs into it.
+     */
+    public static void inflate(ByteBuf data, int deflatedSize, byte[][] outputs) throws IOException {
+        inflate(data, deflatedSize, outputs, null);
+    }
+
+    private static void inflate(ByteBuf data, int deflatedSize, byte[][] outputs, byte[] dictionary) throws IOException {
+        val inflater = ZlibPool.acquireInflater();
+        try {
+            if (data.hasArray()) {
+                inflater.setInput(data.array(), data.arrayOffset() + data.readerIndex(), deflatedSize);
+                data.skipBytes(deflatedSize);
+            } else {
+                val input = ScratchBuffers.inflateBuffer(deflatedSize);
+                data.readBytes(input, 0, deflatedSize);
+                inflater.setInput(input, 0, deflatedSize);
+            }
+            for (val output : outputs) {
+                int offset = 0;
+                while (offset < output.length) {
+                    int inflated = inflater.inflate(output, offset, output.length - offset);
+                    if (inflated == 0 && dictionary != null && inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                        continue;
+                    }
+                    if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Compressed data ended early");
+                    }
+                    offset += inflated;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bad compressed data format", e);
+        } finally {
+            ZlibPool.release(inflater);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.val;
+
+import net.minecraft.server.MinecraftServer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Picks how chunk payloads get compressed. Payloads below a few hundred bytes are not worth the zlib header and setup,
+ * and a server that is falling behind trades bandwidth for CPU by switching to the fastest level.
+ */
+public class CompressionPolicy {
+    public static final int NO_COMPRESSION = -1;
+
+    private static final int MIN_COMPRESSED_SIZE = 256;
+    private static final long BUSY_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(40);
+    private static final long LOAD_SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final LongAdder stored = Metrics.counter("compression.level.stored");
+    private static final LongAdder fast = Metrics.counter("compression.level.fast");
+    private static final LongAdder normal = Metrics.counter("compression.level.default");
+
+    private static volatile boolean busy;
+    private static volatile long lastSample = System.nanoTime() - LOAD_SAMPLE_NANOS;
+
+    public static int level(int payloadSize) {
+        if (payloadSize < MIN_COMPRESSED_SIZE) {
+            stored.increment();
+            return NO_COMPRESSION;
+        }
+        if (isBusy()) {
+            fast.increment();
+            return Deflater.BEST_SPEED;
+        }
+        normal.increment();
+        return Deflater.DEFAULT_COMPRESSION;
+    }
+
+    /**
+     * The server is busy if its recent ticks took most of their time budget, or chunk packets queue up faster than the
+     * compression pool can deflate them. Sampled at most once per second.
+     */
+    private static boolean isBusy() {
+        val now = System.nanoTime();
+        if (now - lastSample < LOAD_SAMPLE_NANOS) {
+            return busy;
+        }
+        lastSample = now;
+        boolean isBusy = CompressionExecutor.queueSize() > CompressionExecutor.QUEUE_SIZE / 2;
+        val server = MinecraftServer.getServer();
+        if (!isBusy && server != null) {
+            val tickTimes = server.tickTimeArray;
+            long total = 0;
+            for (val tickTime : tickTimes) {
+                total += tickTime;
+            }
+            isBusy = total / tickTimes.length > BUSY_TICK_NANOS;
+        }
+        busy = isBusy;
+        return isBusy;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Decodes the subChunks of a loaded chunk in parallel, enabled with {@code -D}{@value #ENABLED_PROPERTY}{@code =true}.
+ * <p>
+ * Only used if every SubChunkDataManager declares {@link com.falsepattern.chunk.api.DataManager.SubChunkDataManager#concurrentSubChunkReads()},
+ * and the chunk has at least {@code -D}{@value #THRESHOLD_PROPERTY} (default {@value #DEFAULT_THRESHOLD}) subChunks.
+ * Smaller chunks are decoded faster on the calling thread than handing them over to the pool, which has
+ * {@code -D}{@value #THREADS_PROPERTY} threads, see {@link WorkerPools#threads}.
+ */
+public class ParallelSectionDecoder {
+    public static final String ENABLED_PROPERTY = "chunkapi.load.parallel";
+    public static final String THRESHOLD_PROPERTY = "chunkapi.load.parallel.threshold";
+    public static final String THREADS_PROPERTY = "chunkapi.load.parallel.threads";
+    public static final int DEFAULT_THRESHOLD = 8;
+
+    private static final boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    private static final int threshold = Math.max(2, Integer.getInteger(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD));
+
+    private static final LongAdder parallelChunks = Metrics.counter("load.parallel.chunks");
+    private static final LongAdder parallelSections = Metrics.counter("load.parallel.sections");
+
+    private static final ForkJoinPool pool = WorkerPools.forkJoinPool("ChunkAPI Section Decoder", WorkerPools.threads(THREADS_PROPERTY));
+
+    public static boolean shouldDecodeInParallel(int subChunkCount) {
+        return enabled && subChunkCount >= threshold && DataRegistryImpl.concurrentSubChunkReads();
+    }
+
+    /**
+     * Calls the decoder for every index from 0 until {@code count} on the pool, and waits for all of them.
+     */
+    public static void decode(int count, IntConsumer decoder) {
+        parallelChunks.increment();
+        parallelSections.add(count);
+        val tasks = new ArrayList<Callable<Void>>(count);
+        for (int i = 0; i < count; i++) {
+            val index = i;
+            tasks.add(() -> {
+                decoder.accept(index);
+                return null;
+            });
+        }
+        try {
+            for (val future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while decoding subchunks", e);
+        } catch (ExecutionException e) {
+            val cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.api.DataManager;
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.ManagerSet;
+import com.falsepattern.chunk.internal.Metrics;
+import com.falsepattern.chunk.internal.impl.CustomChunk;
+import com.falsepattern.chunk.internal.impl.StampedSubChunk;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.var;
+
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares extracted chunk payloads between the packets of every player that gets the same chunk, for example when many
+ * players join at spawn. S21 packets also share the deflated payload.
+ * <p>
+ * Entries are only reused while the stamps of the chunk and of all of its subChunks match. Payloads are not cached at
+ * all unless every packet manager declares its data {@link DataManager.PacketDataManager#stampedPacketData() stamped}.
+ */
+public class PayloadCache {
+    private static final long MAX_BYTES = 32L * 1024 * 1024;
+
+    private static final AtomicLong stamps = new AtomicLong();
+    private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private static long bytes = 0;
+    private static final ThreadLocal<Entry> lastEntry = new ThreadLocal<>();
+
+    private static final LongAdder hits = Metrics.counter("payload.cache.hits");
+    private static final LongAdder misses = Metrics.counter("payload.cache.misses");
+    private static final LongAdder evictions = Metrics.counter("payload.cache.evictions");
+    private static final LongAdder deflateHits = Metrics.counter("payload.cache.deflate.hits");
+
+    @Data
+    private static class Key {
+        private final int dimension;
+        private final int x;
+        private final int z;
+        private final int subChunkMask;
+        private final boolean forceUpdate;
+        private final int features;
+        private final ManagerSet managers;
+    }
+
+    @RequiredArgsConstructor
+    public static class Entry {
+        private final long[] stamps;
+        public final byte[] data;
+        private CompressionHelper.Deflated compressed;
+        private boolean cached;
+
+        private int size() {
+            return data.length + (compressed == null || compressed.format == CompressionHelper.STORED ? 0 : compressed.data.length);
+        }
+    }
+
+    public static long nextStamp() {
+        return stamps.incrementAndGet();
+    }
+
+    private static long[] stampsOf(Chunk chunk) {
+        val subChunks = chunk.getBlockStorageArray();
+        val result = new long[subChunks.length + 1];
+        result[0] = ((CustomChunk) chunk).chunkapi$stamp();
+        for (int i = 0; i < subChunks.length; i++) {
+            val subChunk = subChunks[i];
+            if (subChunk == null) {
+                continue;
+            }
+            result[i + 1] = stampOf(subChunk);
+        }
+        return result;
+    }
+
+    /**
+     * @return The current stamp of the subChunk, never 0.
+     */
+    public static long stampOf(ExtendedBlockStorage subChunk) {
+        val stamped = (StampedSubChunk) subChunk;
+        var stamp = stamped.chunkapi$stamp();
+        if (stamp == 0) {
+            stamp = nextStamp();
+            stamped.chunkapi$setStamp(stamp);
+        }
+        return stamp;
+    }
+
+    /**
+     * Returns the cached payload of the chunk, or extracts and caches it. The entry is also remembered for
+     * {@link #takeLastEntry()}, so the packet being built can share the deflated data later.
+     */
+    public static byte[] getOrExtract(Chunk chunk, int subChunkMask, boolean forceUpdate, int features, ManagerSet managers, Supplier<byte[]> extractor) {
+        if (!DataRegistryImpl.stampedPacketData()) {
+            lastEntry.remove();
+            return extractor.get();
+        }
+        val key = new Key(chunk.worldObj.provider.dimensionId, chunk.xPosition, chunk.zPosition, subChunkMask, forceUpdate, features, managers);
+        // Taken before extracting, a write during the extraction resets the stamp of its subChunk
+        val chunkStamps = stampsOf(chunk);
+        synchronized (entries) {
+            val entry = entries.get(key);
+            if (entry != null && Arrays.equals(entry.stamps, chunkStamps)) {
+                hits.increment();
+                lastEntry.set(entry);
+                return entry.data;
+            }
+        }
+        misses.increment();
+        val entry = new Entry(chunkStamps, extractor.get());
+        synchronized (entries) {
+            val previous = entries.put(key, entry);
+            if (previous != null) {
+                previous.cached = false;
+                bytes -= previous.size();
+            }
+            entry.cached = true;
+            bytes += entry.size();
+            evict();
+        }
+        lastEntry.set(entry);
+        return entry.data;
+    }
+
+    public static Entry takeLastEntry() {
+        val entry = lastEntry.get();
+        lastEntry.remove();
+        return entry;
+    }
+
+    /**
+     * @return The compressed payload, or null if no packet compressed this entry yet.
+     */
+    public static CompressionHelper.Deflated getCompressed(Entry entry) {
+        synchronized (entries) {
+            if (entry.compressed != null) {
+                deflateHits.increment();
+            }
+            return entry.compressed;
+        }
+    }
+
+    public static void putCompressed(Entry entry, CompressionHelper.Deflated compressed) {
+        synchronized (entries) {
+            if (entry.compressed != null) {
+                return;
+            }
+            // Evicted entries are not part of the total anymore
+            if (entry.cached) {
+                bytes -= entry.size();
+                entry.compressed = compressed;
+                bytes += entry.size();
+                evict();
+            } else {
+                entry.compressed = compressed;
+            }
+        }
+    }
+
+    private static void evict() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > MAX_BYTES && iterator.hasNext()) {
+            val entry = iterator.next().getValue();
+            entry.cached = false;
+            bytes -= entry.size();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+}
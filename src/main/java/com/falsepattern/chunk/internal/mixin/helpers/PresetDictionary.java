@@ -0,0 +1,111 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.Common;
+import lombok.val;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional zlib preset dictionary for chunk payloads, shipped as {@value #RESOURCE}. The first byte of the file is the
+ * dictionary version, the rest is the dictionary itself. Build one with
+ * {@link com.falsepattern.chunk.internal.tools.DictionaryBuilder} from payloads captured with
+ * {@code -D}{@value #CAPTURE_PROPERTY}{@code =<directory>}.
+ * <p>
+ * The client reports its dictionary version, and the server only uses the dictionary if both sides have the same one.
+ */
+public class PresetDictionary {
+    public static final String RESOURCE = "/assets/chunkapi/dictionary.bin";
+    public static final String CAPTURE_PROPERTY = "chunkapi.dictionary.capture";
+    private static final int MAX_CAPTURED = 10000;
+
+    private static final int version;
+    private static final byte[] dictionary;
+
+    private static final File captureDir;
+    private static final AtomicInteger captured = new AtomicInteger();
+
+    static {
+        int loadedVersion = 0;
+        byte[] loaded = null;
+        try (val in = PresetDictionary.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                val bytes = IOUtils.toByteArray(in);
+                if (bytes.length > 1 && bytes[0] != 0) {
+                    loadedVersion = bytes[0] & 0xFF;
+                    loaded = Arrays.copyOfRange(bytes, 1, bytes.length);
+                    Common.LOG.info("Loaded chunk payload dictionary version " + loadedVersion + " (" + loaded.length + " bytes)");
+                }
+            }
+        } catch (IOException e) {
+            Common.LOG.error("Failed to load the chunk payload dictionary", e);
+        }
+        version = loadedVersion;
+        dictionary = loaded;
+
+        val capture = System.getProperty(CAPTURE_PROPERTY);
+        captureDir = capture == null ? null : new File(capture);
+        if (captureDir != null && !captureDir.isDirectory() && !captureDir.mkdirs()) {
+            Common.LOG.error("Could not create the chunk payload capture directory " + captureDir);
+        }
+    }
+
+    public static boolean isAvailable() {
+        return dictionary != null;
+    }
+
+    /**
+     * @return The version of the loaded dictionary, or 0 if there is none.
+     */
+    public static int version() {
+        return version;
+    }
+
+    public static byte[] dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Writes the payload into the capture directory, if capturing is enabled.
+     */
+    public static void capture(byte[] payload) {
+        if (captureDir == null) {
+            return;
+        }
+        val index = captured.getAndIncrement();
+        if (index >= MAX_CAPTURED) {
+            return;
+        }
+        try (val out = new FileOutputStream(new File(captureDir, "payload-" + index + ".bin"))) {
+            out.write(payload);
+        } catch (IOException e) {
+            Common.LOG.error("Failed to capture chunk payload", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.val;
+import lombok.var;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-thread scratch space for chunk extraction and decoding. Every thread that extracts chunks (server thread,
+ * pregen/worker threads) or decodes them (netty threads) owns its own buffers, so they never block on other threads.
+ */
+public class ScratchBuffers {
+    private static final ThreadLocal<byte[]> extractBuffer = ThreadLocal.withInitial(() -> new byte[0]);
+    private static final ThreadLocal<byte[]> inflateBuffer = ThreadLocal.withInitial(() -> new byte[0]);
+    private static final ThreadLocal<byte[]> binaryBuffer = ThreadLocal.withInitial(() -> new byte[0]);
+
+    private static final AtomicInteger activeExtractions = new AtomicInteger();
+    private static final LongAdder extractions = Metrics.counter("extract.count");
+    private static final LongAdder concurrentExtractions = Metrics.counter("extract.concurrent");
+    private static final LongAccumulator peakConcurrentExtractions = Metrics.maximum("extract.concurrent.peak");
+    private static final LongAdder bufferUses = Metrics.counter("extract.buffer.uses");
+    private static final LongAdder bufferAllocations = Metrics.counter("extract.buffer.allocations");
+
+    /**
+     * Only needed when a manager can't report its exact packet size, see {@link DataRegistryImpl#writeToArray}.
+     *
+     * @return This thread's extraction buffer, grown to at least {@link DataRegistryImpl#maxPacketSize()} bytes.
+     */
+    public static byte[] extractBuffer() {
+        bufferUses.increment();
+        var buffer = extractBuffer.get();
+        val size = DataRegistryImpl.maxPacketSize();
+        if (buffer.length < size) {
+            buffer = new byte[size];
+            extractBuffer.set(buffer);
+            bufferAllocations.increment();
+        }
+        return buffer;
+    }
+
+    /**
+     * @return This thread's buffer for compressed packet data, grown to at least {@code size} bytes.
+     */
+    public static byte[] inflateBuffer(int size) {
+        var buffer = inflateBuffer.get();
+        if (buffer.length < size) {
+            buffer = new byte[size];
+            inflateBuffer.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return This thread's buffer for binary subchunk data, grown to at least
+     * {@link DataRegistryImpl#maxSubChunkBinarySize()} bytes.
+     */
+    public static byte[] binaryBuffer() {
+        var buffer = binaryBuffer.get();
+        val size = DataRegistryImpl.maxSubChunkBinarySize();
+        if (buffer.length < size) {
+            buffer = new byte[size];
+            binaryBuffer.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Must be paired with {@link #endExtraction()}. Tracks how many extractions overlap, which all used to wait on a
+     * single global lock.
+     */
+    public static void beginExtraction() {
+        extractions.increment();
+        val active = activeExtractions.incrementAndGet();
+        if (active > 1) {
+            concurrentExtractions.increment();
+        }
+        peakConcurrentExtractions.accumulate(active);
+    }
+
+    public static void endExtraction() {
+        activeExtractions.decrementAndGet();
+    }
+}
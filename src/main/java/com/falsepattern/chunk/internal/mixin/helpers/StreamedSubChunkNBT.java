@@ -0,0 +1,149 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import lombok.val;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A subChunk compound read by {@link StreamingChunkReader}. The vanilla block and light arrays are kept as plain fields
+ * instead of tags, and are only wrapped into tags if someone asks for the tag itself.
+ * <p>
+ * Only meant for reading. The arrays are lost if the compound is written out as-is, use {@link #copy()} first.
+ */
+public class StreamedSubChunkNBT extends NBTTagCompound {
+    static final String[] ARRAY_KEYS = {"Blocks", "Add", "Data", "BlockLight", "SkyLight"};
+
+    private final byte[][] arrays = new byte[ARRAY_KEYS.length][];
+
+    static int slot(String key) {
+        switch (key) {
+            case "Blocks":
+                return 0;
+            case "Add":
+                return 1;
+            case "Data":
+                return 2;
+            case "BlockLight":
+                return 3;
+            case "SkyLight":
+                return 4;
+            default:
+                return -1;
+        }
+    }
+
+    void setArray(int slot, byte[] array) {
+        arrays[slot] = array;
+    }
+
+    private byte[] array(String key) {
+        val slot = slot(key);
+        return slot < 0 ? null : arrays[slot];
+    }
+
+    private void clearArray(String key) {
+        val slot = slot(key);
+        if (slot >= 0) {
+            arrays[slot] = null;
+        }
+    }
+
+    @Override
+    public byte[] getByteArray(String key) {
+        val array = array(key);
+        return array != null ? array : super.getByteArray(key);
+    }
+
+    @Override
+    public boolean hasKey(String key) {
+        return array(key) != null || super.hasKey(key);
+    }
+
+    @Override
+    public byte func_150299_b(String key) {
+        return array(key) != null ? 7 : super.func_150299_b(key);
+    }
+
+    @Override
+    public NBTBase getTag(String key) {
+        val array = array(key);
+        return array != null ? new NBTTagByteArray(array) : super.getTag(key);
+    }
+
+    @Override
+    public Set<?> func_150296_c() {
+        val keys = new HashSet<Object>(super.func_150296_c());
+        for (int i = 0; i < arrays.length; i++) {
+            if (arrays[i] != null) {
+                keys.add(ARRAY_KEYS[i]);
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean hasNoTags() {
+        for (val array : arrays) {
+            if (array != null) {
+                return false;
+            }
+        }
+        return super.hasNoTags();
+    }
+
+    @Override
+    public void setTag(String key, NBTBase value) {
+        clearArray(key);
+        super.setTag(key, value);
+    }
+
+    @Override
+    public void setByteArray(String key, byte[] value) {
+        clearArray(key);
+        super.setByteArray(key, value);
+    }
+
+    @Override
+    public void removeTag(String key) {
+        clearArray(key);
+        super.removeTag(key);
+    }
+
+    @Override
+    public NBTBase copy() {
+        val copy = (NBTTagCompound) super.copy();
+        for (int i = 0; i < arrays.length; i++) {
+            if (arrays[i] != null) {
+                copy.setByteArray(ARRAY_KEYS[i], arrays[i].clone());
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.val;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads chunks from the region file stream in a single pass, enabled with
+ * {@code -D}{@value #ENABLED_PROPERTY}{@code =true}.
+ * <p>
+ * Produces the same tag tree as {@link CompressedStreamTools#read(DataInputStream)}, except that the block and light
+ * arrays of each subChunk are kept out of the tree, see {@link StreamedSubChunkNBT}. Every other tag, including the
+ * data of modded managers, is read as usual.
+ */
+public class StreamingChunkReader {
+    public static final String ENABLED_PROPERTY = "chunkapi.load.streaming";
+
+    private static final boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    // Same limit as NBTTagCompound
+    private static final int MAX_DEPTH = 512;
+
+    private static final LongAdder reads = Metrics.counter("load.read.count");
+    private static final LongAdder readNanos = Metrics.counter("load.read.nanos");
+    private static final LongAdder streamedReads = Metrics.counter("load.read.streamed");
+
+    private enum Context {
+        ROOT,
+        LEVEL,
+        OTHER
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads a chunk with the streaming reader if it is enabled, or {@link CompressedStreamTools} otherwise.
+     */
+    public static NBTTagCompound readChunk(DataInputStream input) throws IOException {
+        val start = System.nanoTime();
+        final NBTTagCompound result;
+        if (enabled) {
+            result = read(input);
+            streamedReads.increment();
+        } else {
+            result = CompressedStreamTools.read(input);
+        }
+        reads.increment();
+        readNanos.add(System.nanoTime() - start);
+        return result;
+    }
+
+    public static NBTTagCompound read(DataInput input) throws IOException {
+        if (input.readByte() != Constants.NBT.TAG_COMPOUND) {
+            throw new IOException("Root tag must be a named compound tag");
+        }
+        input.readUTF();
+        return readCompound(input, 0, Context.ROOT);
+    }
+
+    private static NBTTagCompound readCompound(DataInput input, int depth, Context context) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Tried to read NBT tag with too high complexity, depth > " + MAX_DEPTH);
+        }
+        val compound = new NBTTagCompound();
+        byte type;
+        while ((type = input.readByte()) != Constants.NBT.TAG_END) {
+            val key = input.readUTF();
+            if (context == Context.ROOT && type == Constants.NBT.TAG_COMPOUND && "Level".equals(key)) {
+                compound.setTag(key, readCompound(input, depth + 1, Context.LEVEL));
+            } else if (context == Context.LEVEL && type == Constants.NBT.TAG_LIST && "Sections".equals(key)) {
+                compound.setTag(key, readSections(input, depth + 1));
+            } else {
+                compound.setTag(key, readTag(input, type, depth + 1));
+            }
+        }
+        return compound;
+    }
+
+    private static NBTTagList readSections(DataInput input, int depth) throws IOException {
+        val type = input.readByte();
+        val count = input.readInt();
+        val list = new NBTTagList();
+        for (int i = 0; i < count; i++) {
+            list.appendTag(type == Constants.NBT.TAG_COMPOUND ? readSection(input, depth + 1) : readTag(input, type, depth + 1));
+        }
+        return list;
+    }
+
+    private static StreamedSubChunkNBT readSection(DataInput input, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Tried to read NBT tag with too high complexity, depth > " + MAX_DEPTH);
+        }
+        val section = new StreamedSubChunkNBT();
+        byte type;
+        while ((type = input.readByte()) != Constants.NBT.TAG_END) {
+            val key = input.readUTF();
+            val slot = type == Constants.NBT.TAG_BYTE_ARRAY ? StreamedSubChunkNBT.slot(key) : -1;
+            if (slot >= 0) {
+                section.setArray(slot, readByteArray(input));
+            } else {
+                section.setTag(key, readTag(input, type, depth + 1));
+            }
+        }
+        return section;
+    }
+
+    private static byte[] readByteArray(DataInput input) throws IOException {
+        val array = new byte[input.readInt()];
+        input.readFully(array);
+        return array;
+    }
+
+    private static NBTBase readTag(DataInput input, byte type, int depth) throws IOException {
+        switch (type) {
+            case Constants.NBT.TAG_BYTE:
+                return new NBTTagByte(input.readByte());
+            case Constants.NBT.TAG_SHORT:
+                return new NBTTagShort(input.readShort());
+            case Constants.NBT.TAG_INT:
+                return new NBTTagInt(input.readInt());
+            case Constants.NBT.TAG_LONG:
+                return new NBTTagLong(input.readLong());
+            case Constants.NBT.TAG_FLOAT:
+                return new NBTTagFloat(input.readFloat());
+            case Constants.NBT.TAG_DOUBLE:
+                return new NBTTagDouble(input.readDouble());
+            case Constants.NBT.TAG_BYTE_ARRAY:
+                return new NBTTagByteArray(readByteArray(input));
+            case Constants.NBT.TAG_STRING:
+                return new NBTTagString(input.readUTF());
+            case Constants.NBT.TAG_LIST: {
+                if (depth > MAX_DEPTH) {
+                    throw new IOException("Tried to read NBT tag with too high complexity, depth > " + MAX_DEPTH);
+                }
+                val elementType = input.readByte();
+                val count = input.readInt();
+                val list = new NBTTagList();
+                for (int i = 0; i < count; i++) {
+                    list.appendTag(readTag(input, elementType, depth + 1));
+                }
+                return list;
+            }
+            case Constants.NBT.TAG_COMPOUND:
+                return readCompound(input, depth, Context.OTHER);
+            case Constants.NBT.TAG_INT_ARRAY: {
+                val array = new int[input.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readInt();
+                }
+                return new NBTTagIntArray(array);
+            }
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import lombok.val;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates the worker pools of ChunkAPI. The pools only start their threads once the first task is submitted, so they
+ * cost nothing while their feature is disabled.
+ */
+public class WorkerPools {
+    /**
+     * @return The value of the given system property, or half the processors, between 1 and 4, if it's not set.
+     */
+    public static int threads(String property) {
+        val fallback = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        return Math.max(1, Integer.getInteger(property, fallback));
+    }
+
+    /**
+     * A fixed size pool of daemon threads. When the queue is full, the submitting thread runs the task itself, which
+     * slows it down instead of piling up work.
+     */
+    public static ThreadPoolExecutor boundedExecutor(String name, int threads, int queueSize, LongAdder callerRuns) {
+        val counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), task -> {
+            val thread = new Thread(task, name + " #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> {
+            callerRuns.increment();
+            task.run();
+        });
+    }
+
+    public static ForkJoinPool forkJoinPool(String name, int threads) {
+        val counter = new AtomicInteger();
+        return new ForkJoinPool(threads, pool -> {
+            val thread = new ForkJoinWorkerThread(pool) {};
+            thread.setName(name + " #" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+}
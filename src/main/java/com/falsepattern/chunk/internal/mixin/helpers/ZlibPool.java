@@ -0,0 +1,98 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.helpers;
+
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.val;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded per-thread pools of zlib streams, so that the native zlib state is not set up and torn down for every packet.
+ */
+public class ZlibPool {
+    private static final int MAX_POOLED_PER_THREAD = 4;
+
+    private static final ThreadLocal<ArrayDeque<Inflater>> inflaters = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final ThreadLocal<ArrayDeque<Deflater>> deflaters = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static final LongAdder inflatersCreated = Metrics.counter("zlib.inflater.created");
+    private static final LongAdder inflatersReused = Metrics.counter("zlib.inflater.reused");
+    private static final LongAdder inflatersDiscarded = Metrics.counter("zlib.inflater.discarded");
+    private static final LongAdder deflatersCreated = Metrics.counter("zlib.deflater.created");
+    private static final LongAdder deflatersReused = Metrics.counter("zlib.deflater.reused");
+    private static final LongAdder deflatersDiscarded = Metrics.counter("zlib.deflater.discarded");
+
+    /**
+     * Must be returned with {@link #release(Inflater)} on the same thread.
+     */
+    public static Inflater acquireInflater() {
+        val inflater = inflaters.get().pollFirst();
+        if (inflater != null) {
+            inflatersReused.increment();
+            return inflater;
+        }
+        inflatersCreated.increment();
+        return new Inflater();
+    }
+
+    public static void release(Inflater inflater) {
+        val pool = inflaters.get();
+        if (pool.size() < MAX_POOLED_PER_THREAD) {
+            inflater.reset();
+            pool.addFirst(inflater);
+        } else {
+            inflatersDiscarded.increment();
+            inflater.end();
+        }
+    }
+
+    /**
+     * Must be returned with {@link #release(Deflater)} on the same thread.
+     */
+    public static Deflater acquireDeflater(int level) {
+        val deflater = deflaters.get().pollFirst();
+        if (deflater != null) {
+            deflatersReused.increment();
+            // Applies to the next stream, the deflater was reset when it was released
+            deflater.setLevel(level);
+            return deflater;
+        }
+        deflatersCreated.increment();
+        return new Deflater(level);
+    }
+
+    public static void release(Deflater deflater) {
+        val pool = deflaters.get();
+        if (pool.size() < MAX_POOLED_PER_THREAD) {
+            deflater.reset();
+            pool.addFirst(deflater);
+        } else {
+            deflatersDiscarded.increment();
+            deflater.end();
+        }
+    }
+}
@@ -25,6 +25,7 @@ package com.falsepattern.chunk.internal.mixin.mixins.client.vanilla;
 import com.falsepattern.chunk.internal.DataRegistryImpl;
 import com.falsepattern.chunk.internal.impl.CustomPacketBlockChange;
 import com.falsepattern.chunk.internal.impl.CustomPacketMultiBlockChange;
+import com.falsepattern.chunk.internal.network.PartialChunkDataClient;
 import lombok.val;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
@@ -36,8 +37,10 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import net.minecraft.client.multiplayer.WorldClient;
 import net.minecraft.client.network.NetHandlerPlayClient;
 import net.minecraft.network.play.INetHandlerPlayClient;
+import net.minecraft.network.play.server.S21PacketChunkData;
 import net.minecraft.network.play.server.S22PacketMultiBlockChange;
 import net.minecraft.network.play.server.S23PacketBlockChange;
+import net.minecraft.network.play.server.S26PacketMapChunkBulk;
 
 @Mixin(NetHandlerPlayClient.class)
 public abstract class NetHandlerPlayClientMixin implements INetHandlerPlayClient {
@@ -56,24 +59,76 @@ public abstract class NetHandlerPlayClientMixin implements INetHandlerPlayClient
         DataRegistryImpl.readBlockFromPacket(chunk, x & 0xf, y, z & 0xf, packetIn);
     }
 
+    @Inject(method = "handleChunkData",
+            at = @At(value = "RETURN"),
+            require = 1)
+    private void afterChunkData(S21PacketChunkData packetIn, CallbackInfo ci) {
+        if (packetIn.func_149274_i()) {
+            PartialChunkDataClient.onFullChunkApplied(packetIn.func_149273_e(), packetIn.func_149271_f());
+        }
+    }
+
+    @Inject(method = "handleMapChunkBulk",
+            at = @At(value = "RETURN"),
+            require = 1)
+    private void afterMapChunkBulk(S26PacketMapChunkBulk packetIn, CallbackInfo ci) {
+        for (int i = 0, count = packetIn.func_149254_d(); i < count; i++) {
+            PartialChunkDataClient.onFullChunkApplied(packetIn.func_149255_a(i), packetIn.func_149253_b(i));
+        }
+    }
+
     /**
+     * Places the whole batch straight into the chunk, instead of going through {@link WorldClient#func_147492_c} for
+     * every entry. Lighting is only rechecked where the light value or opacity changed, and the render update is done
+     * once for the area covered by the batch.
+     *
      * @author FalsePattern
      * @reason Integrate
      */
     @Overwrite
     public void handleMultiBlockChange(S22PacketMultiBlockChange packetIn) {
+        val world = clientWorldController;
         val cX = packetIn.func_148920_c().chunkXPos;
         val cZ = packetIn.func_148920_c().chunkZPos;
-        val chunk = clientWorldController.getChunkFromChunkCoords(cX, cZ);
+        val chunk = world.getChunkFromChunkCoords(cX, cZ);
         val bX = cX * 16;
         val bZ = cZ * 16;
-        for (val subPacket : ((CustomPacketMultiBlockChange) packetIn).chunkapi$subPackets()) {
-            val cSub = (CustomPacketBlockChange) subPacket;
-            val x = cSub.chunkapi$x();
-            val y = cSub.chunkapi$y();
-            val z = cSub.chunkapi$z();
-            this.clientWorldController.func_147492_c(x + bX, y, z + bZ, subPacket.func_148880_c(), subPacket.func_148881_g());
-            DataRegistryImpl.readBlockFromPacket(chunk, x, y, z, subPacket);
+        val batch = ((CustomPacketMultiBlockChange) packetIn).chunkapi$batch();
+        val count = batch.size();
+        if (count == 0) {
+            return;
+        }
+        int minX = 15, minY = 255, minZ = 15;
+        int maxX = 0, maxY = 0, maxZ = 0;
+        for (int i = 0; i < count; i++) {
+            val x = batch.x(i);
+            val y = batch.y(i);
+            val z = batch.z(i);
+            // Managers can change the data of every entry, even where the vanilla block stays the same
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+            val wX = bX + x;
+            val wZ = bZ + z;
+            val block = batch.block(i);
+            if (block == null) {
+                // No manager sent a block for this entry
+                continue;
+            }
+            val oldBlock = chunk.getBlock(x, y, z);
+            val oldLight = oldBlock.getLightValue(world, wX, y, wZ);
+            val oldOpacity = oldBlock.getLightOpacity(world, wX, y, wZ);
+            if (!chunk.func_150807_a(x, y, z, block, batch.metadata(i))) {
+                continue;
+            }
+            if (block.getLightOpacity(world, wX, y, wZ) != oldOpacity || block.getLightValue(world, wX, y, wZ) != oldLight) {
+                world.func_147451_t(wX, y, wZ);
+            }
         }
+        DataRegistryImpl.readBlocksFromBatch(chunk, batch);
+        world.markBlockRangeForRenderUpdate(bX + minX, minY, bZ + minZ, bX + maxX, maxY, bZ + maxZ);
     }
 }
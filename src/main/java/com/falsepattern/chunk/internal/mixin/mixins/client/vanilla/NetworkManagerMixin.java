@@ -0,0 +1,61 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.mixins.client.vanilla;
+
+import com.falsepattern.chunk.internal.network.PartialChunkDataClient;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.val;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.network.NetworkManager;
+import net.minecraft.network.Packet;
+import net.minecraft.network.play.server.S21PacketChunkData;
+import net.minecraft.network.play.server.S26PacketMapChunkBulk;
+
+/**
+ * Sees the vanilla packets in the same order as the ChunkAPI channel messages, for both remote and integrated servers.
+ * The applied full chunks are counted by {@link NetHandlerPlayClientMixin}.
+ */
+@Mixin(NetworkManager.class)
+public abstract class NetworkManagerMixin {
+    @Inject(method = "channelRead0(Lio/netty/channel/ChannelHandlerContext;Lnet/minecraft/network/Packet;)V",
+            at = @At("HEAD"),
+            remap = false,
+            require = 1)
+    private void trackFullChunks(ChannelHandlerContext ctx, Packet packet, CallbackInfo ci) {
+        if (packet instanceof S21PacketChunkData) {
+            val chunkData = (S21PacketChunkData) packet;
+            if (chunkData.func_149274_i()) {
+                PartialChunkDataClient.onFullChunkReceived(chunkData.func_149273_e(), chunkData.func_149271_f());
+            }
+        } else if (packet instanceof S26PacketMapChunkBulk) {
+            val bulk = (S26PacketMapChunkBulk) packet;
+            for (int i = 0, count = bulk.func_149254_d(); i < count; i++) {
+                PartialChunkDataClient.onFullChunkReceived(bulk.func_149255_a(i), bulk.func_149253_b(i));
+            }
+        }
+    }
+}
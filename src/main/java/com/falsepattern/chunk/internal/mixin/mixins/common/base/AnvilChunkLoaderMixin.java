@@ -23,11 +23,17 @@
 package com.falsepattern.chunk.internal.mixin.mixins.common.base;
 
 import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.mixin.helpers.AsyncChunkSaver;
+import com.falsepattern.chunk.internal.mixin.helpers.ParallelSectionDecoder;
+import com.falsepattern.chunk.internal.mixin.helpers.StreamingChunkReader;
 import lombok.val;
 import org.apache.logging.log4j.Level;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
@@ -36,6 +42,7 @@ import net.minecraft.entity.Entity;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.NextTickListEntry;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
@@ -43,10 +50,92 @@ import net.minecraft.world.chunk.storage.AnvilChunkLoader;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import cpw.mods.fml.common.FMLLog;
 
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Mixin(AnvilChunkLoader.class)
 public abstract class AnvilChunkLoaderMixin {
+    /**
+     * Saves still being serialized by the {@link AsyncChunkSaver}. Added to on the saving thread, but completed saves
+     * remove themselves on the worker thread, so this has to stay a ConcurrentHashMap.
+     */
+    @Unique
+    private final Map<ChunkCoordIntPair, CompletableFuture<Void>> chunkapi$inFlight = new ConcurrentHashMap<>();
+
+    @Shadow
+    protected abstract void addChunkToPending(ChunkCoordIntPair coord, NBTTagCompound nbt);
+
+    @Inject(method = "saveChunk",
+            at = @At("HEAD"),
+            require = 1)
+    private void beginSave(World world, Chunk chunk, CallbackInfo ci) {
+        AsyncChunkSaver.beginSave();
+    }
+
+    @Inject(method = "saveChunk",
+            at = @At("RETURN"),
+            require = 1)
+    private void endSave(World world, Chunk chunk, CallbackInfo ci) {
+        AsyncChunkSaver.endSave();
+    }
+
+    /**
+     * Hands the chunk to the region writer once the manager data of the snapshot was serialized, if the save was made
+     * asynchronous by {@link #writeChunkToNBT}.
+     */
+    @Redirect(method = "saveChunk",
+              at = @At(value = "INVOKE",
+                       target = "Lnet/minecraft/world/chunk/storage/AnvilChunkLoader;addChunkToPending(Lnet/minecraft/world/ChunkCoordIntPair;Lnet/minecraft/nbt/NBTTagCompound;)V"),
+              require = 1)
+    private void addChunkToPendingAsync(AnvilChunkLoader loader, ChunkCoordIntPair coord, NBTTagCompound nbt) {
+        val snapshot = AsyncChunkSaver.takeSnapshot();
+        if (snapshot == null) {
+            addChunkToPending(coord, nbt);
+            return;
+        }
+        AsyncChunkSaver.submit(chunkapi$inFlight, coord, snapshot, nbt, (chunk, data) -> {
+            writeSubChunks(chunk, data);
+            writeCustomData(chunk, data);
+        }, root -> addChunkToPending(coord, root));
+    }
+
+    @Inject(method = "loadChunk__Async",
+            at = @At("HEAD"),
+            remap = false,
+            require = 1)
+    private void awaitSaveBeforeLoad(World world, int x, int z, CallbackInfoReturnable<Object[]> cir) {
+        AsyncChunkSaver.await(chunkapi$inFlight, new ChunkCoordIntPair(x, z));
+    }
+
+    @Redirect(method = "loadChunk__Async",
+              at = @At(value = "INVOKE",
+                       target = "Lnet/minecraft/nbt/CompressedStreamTools;read(Ljava/io/DataInputStream;)Lnet/minecraft/nbt/NBTTagCompound;",
+                       remap = true),
+              remap = false,
+              require = 1)
+    private NBTTagCompound readChunkStream(DataInputStream input) throws IOException {
+        return StreamingChunkReader.readChunk(input);
+    }
+
+    @Inject(method = "chunkExists",
+            at = @At("HEAD"),
+            remap = false,
+            require = 1)
+    private void awaitSaveBeforeExists(World world, int x, int z, CallbackInfoReturnable<Boolean> cir) {
+        AsyncChunkSaver.await(chunkapi$inFlight, new ChunkCoordIntPair(x, z));
+    }
+
+    @Inject(method = "saveExtraData",
+            at = @At("HEAD"),
+            require = 1)
+    private void awaitSaves(CallbackInfo ci) {
+        AsyncChunkSaver.awaitAll(chunkapi$inFlight);
+    }
+
     /**
      * Writes the Chunk passed as an argument to the NBTTagCompound also passed, using the World argument to retrieve
      * the Chunk's last update time.
@@ -60,15 +149,22 @@ public abstract class AnvilChunkLoaderMixin {
             cancellable = true,
             require = 1)
     private void writeChunkToNBT(Chunk chunk, World world, NBTTagCompound nbt, CallbackInfo ci) {
+        val start = System.nanoTime();
         nbt.setByte("V", (byte) 1);
         nbt.setInteger("xPos", chunk.xPosition);
         nbt.setInteger("zPos", chunk.zPosition);
         nbt.setLong("LastUpdate", world.getTotalWorldTime());
         nbt.setBoolean("TerrainPopulated", chunk.isTerrainPopulated);
         nbt.setLong("InhabitedTime", chunk.inhabitedTime);
-        writeSubChunks(chunk, nbt);
-        writeCustomData(chunk, nbt);
+        if (AsyncChunkSaver.isSaving()) {
+            // Sections and custom data are merged into nbt on the saver thread
+            AsyncChunkSaver.snapshot(chunk, nbt);
+        } else {
+            writeSubChunks(chunk, nbt);
+            writeCustomData(chunk, nbt);
+        }
         writeEntities(chunk, world, nbt);
+        AsyncChunkSaver.recordTick(System.nanoTime() - start);
         ci.cancel();
     }
 
@@ -106,19 +202,27 @@ public abstract class AnvilChunkLoaderMixin {
         byte segments = 16;
         ExtendedBlockStorage[] subChunkList = new ExtendedBlockStorage[segments];
 
-        for (int k = 0; k < subChunksNBT.tagCount(); ++k) {
-            NBTTagCompound subChunkNBT = subChunksNBT.getCompoundTagAt(k);
-            byte yLevel = subChunkNBT.getByte("Y");
-            ExtendedBlockStorage subChunk = new ExtendedBlockStorage(yLevel << 4, !chunk.worldObj.provider.hasNoSky);
-            DataRegistryImpl.readSubChunkFromNBT(chunk, subChunk, subChunkNBT);
-
-            subChunk.removeInvalidBlocks();
-            subChunkList[yLevel] = subChunk;
+        int count = subChunksNBT.tagCount();
+        if (ParallelSectionDecoder.shouldDecodeInParallel(count)) {
+            ParallelSectionDecoder.decode(count, k -> readSubChunk(chunk, subChunksNBT.getCompoundTagAt(k), subChunkList));
+        } else {
+            for (int k = 0; k < count; ++k) {
+                readSubChunk(chunk, subChunksNBT.getCompoundTagAt(k), subChunkList);
+            }
         }
 
         chunk.setStorageArrays(subChunkList);
     }
 
+    private void readSubChunk(Chunk chunk, NBTTagCompound subChunkNBT, ExtendedBlockStorage[] subChunkList) {
+        byte yLevel = subChunkNBT.getByte("Y");
+        ExtendedBlockStorage subChunk = new ExtendedBlockStorage(yLevel << 4, !chunk.worldObj.provider.hasNoSky);
+        DataRegistryImpl.readSubChunkFromNBT(chunk, subChunk, subChunkNBT);
+
+        subChunk.removeInvalidBlocks();
+        subChunkList[yLevel] = subChunk;
+    }
+
     private void writeCustomData(Chunk chunk, NBTTagCompound nbt) {
         DataRegistryImpl.writeChunkToNBT(chunk, nbt);
     }
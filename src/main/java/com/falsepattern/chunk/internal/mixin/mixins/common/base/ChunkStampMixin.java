@@ -0,0 +1,64 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.mixins.common.base;
+
+import com.falsepattern.chunk.internal.impl.CustomChunk;
+import com.falsepattern.chunk.internal.mixin.helpers.PayloadCache;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.minecraft.world.chunk.Chunk;
+
+@Mixin(Chunk.class)
+public abstract class ChunkStampMixin implements CustomChunk {
+    @Unique
+    private long chunkapi$stamp = PayloadCache.nextStamp();
+
+    @Override
+    public long chunkapi$stamp() {
+        return chunkapi$stamp;
+    }
+
+    @Override
+    public void chunkapi$bumpStamp() {
+        chunkapi$stamp = PayloadCache.nextStamp();
+    }
+
+    @Inject(method = {"func_150807_a", "setBlockMetadata"},
+            at = @At("HEAD"),
+            require = 2)
+    private void bumpOnBlockChange(CallbackInfoReturnable<Boolean> cir) {
+        chunkapi$bumpStamp();
+    }
+
+    @Inject(method = {"setLightValue", "setChunkModified", "setBiomeArray"},
+            at = @At("HEAD"),
+            require = 3)
+    private void bumpOnModified(CallbackInfo ci) {
+        chunkapi$bumpStamp();
+    }
+}
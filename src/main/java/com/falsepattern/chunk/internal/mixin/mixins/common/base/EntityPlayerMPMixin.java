@@ -0,0 +1,60 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.mixins.common.base;
+
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
+import lombok.val;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.play.server.S26PacketMapChunkBulk;
+import net.minecraft.world.chunk.Chunk;
+
+import java.util.List;
+
+@Mixin(EntityPlayerMP.class)
+public abstract class EntityPlayerMPMixin {
+    @Shadow
+    public NetHandlerPlayServer playerNetServerHandler;
+
+    /**
+     * The chunk data gets extracted in the constructor, and this packet only goes to this player, so it can use every
+     * encoding the client supports instead of the ones shared by all players, and leave out the managers it lacks.
+     */
+    @Redirect(method = "onUpdate",
+              at = @At(value = "NEW",
+                       target = "(Ljava/util/List;)Lnet/minecraft/network/play/server/S26PacketMapChunkBulk;"),
+              require = 1)
+    private S26PacketMapChunkBulk targetPacket(List<Chunk> chunks) {
+        val previous = ProtocolFeatures.beginTarget(ProtocolFeatures.forConnection(playerNetServerHandler.netManager));
+        try {
+            return new S26PacketMapChunkBulk(chunks);
+        } finally {
+            ProtocolFeatures.endTarget(previous);
+        }
+    }
+}
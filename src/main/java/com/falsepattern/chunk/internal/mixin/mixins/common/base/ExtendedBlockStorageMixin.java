@@ -0,0 +1,99 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.mixins.common.base;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.impl.CopyOnWriteSubChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Write barrier for copy-on-write clones. The managers copy the shared data while the subChunk is locked, and their
+ * own accesses during that don't trigger the barrier again.
+ */
+@Mixin(ExtendedBlockStorage.class)
+public abstract class ExtendedBlockStorageMixin implements CopyOnWriteSubChunk {
+    @Unique
+    private volatile int chunkapi$shareState;
+
+    @Override
+    public int chunkapi$shareState() {
+        return chunkapi$shareState;
+    }
+
+    @Override
+    public void chunkapi$setShareState(int state) {
+        chunkapi$shareState = state;
+    }
+
+    @Inject(method = {"func_150818_a",
+                      "setExtBlockMetadata",
+                      "setExtSkylightValue",
+                      "setExtBlocklightValue",
+                      "setBlockLSBArray",
+                      "setBlockMSBArray",
+                      "setBlockMetadataArray",
+                      "setBlocklightArray",
+                      "setSkylightArray"},
+            at = @At("HEAD"),
+            require = 9)
+    private void copyBeforeWrite(CallbackInfo ci) {
+        if (chunkapi$shareState != NOT_SHARED && !Thread.holdsLock(this)) {
+            DataRegistryImpl.unshareSubChunk((ExtendedBlockStorage) (Object) this);
+        }
+    }
+
+    @Inject(method = "getBlockLSBArray",
+            at = @At("HEAD"),
+            require = 1)
+    private void copyBeforeAccess(CallbackInfoReturnable<byte[]> cir) {
+        copyBeforeAccess();
+    }
+
+    @Inject(method = {"getBlockMSBArray",
+                      "getMetadataArray",
+                      "getBlocklightArray",
+                      "getSkylightArray"},
+            at = @At("HEAD"),
+            require = 4)
+    private void copyBeforeNibbleAccess(CallbackInfoReturnable<NibbleArray> cir) {
+        copyBeforeAccess();
+    }
+
+    /**
+     * The arrays handed out by the source of a clone may get written to. Snapshots are only read.
+     */
+    @Unique
+    private void copyBeforeAccess() {
+        if (chunkapi$shareState == SHARED && !Thread.holdsLock(this)) {
+            DataRegistryImpl.unshareSubChunk((ExtendedBlockStorage) (Object) this);
+        }
+    }
+}
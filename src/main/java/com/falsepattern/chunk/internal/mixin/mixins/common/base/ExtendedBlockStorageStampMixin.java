@@ -0,0 +1,85 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.mixins.common.base;
+
+import com.falsepattern.chunk.internal.impl.StampedSubChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * Resets the stamp after the write, so a payload extracted while the write is in progress gets a new stamp.
+ */
+@Mixin(ExtendedBlockStorage.class)
+public abstract class ExtendedBlockStorageStampMixin implements StampedSubChunk {
+    @Unique
+    private volatile long chunkapi$stamp;
+    // Not published together. A mismatched pair only makes the payload fall back to the scratch buffer.
+    @Unique
+    private long chunkapi$palettedSizeStamp;
+    @Unique
+    private int chunkapi$palettedSize;
+
+    @Override
+    public long chunkapi$stamp() {
+        return chunkapi$stamp;
+    }
+
+    @Override
+    public void chunkapi$setStamp(long stamp) {
+        chunkapi$stamp = stamp;
+    }
+
+    @Override
+    public int chunkapi$palettedSize(long stamp) {
+        return chunkapi$palettedSizeStamp == stamp ? chunkapi$palettedSize : -1;
+    }
+
+    @Override
+    public void chunkapi$setPalettedSize(long stamp, int size) {
+        chunkapi$palettedSize = size;
+        chunkapi$palettedSizeStamp = stamp;
+    }
+
+    @Inject(method = {"func_150818_a",
+                      "setExtBlockMetadata",
+                      "setExtSkylightValue",
+                      "setExtBlocklightValue",
+                      "setBlockLSBArray",
+                      "setBlockMSBArray",
+                      "setBlockMetadataArray",
+                      "setBlocklightArray",
+                      "setSkylightArray"},
+            at = @At("RETURN"),
+            require = 9)
+    private void resetStamp(CallbackInfo ci) {
+        // Avoids the volatile write for every block of a subChunk that is being generated
+        if (chunkapi$stamp != 0) {
+            chunkapi$stamp = 0;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.mixin.mixins.common.base;
+
+import com.falsepattern.chunk.internal.network.BlockChangeCoalescer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.Packet;
+
+@Mixin(NetHandlerPlayServer.class)
+public abstract class NetHandlerPlayServerMixin {
+    @Inject(method = "sendPacket",
+            at = @At("HEAD"),
+            cancellable = true,
+            require = 1)
+    private void coalesceBlockChanges(Packet packet, CallbackInfo ci) {
+        if (BlockChangeCoalescer.intercept((NetHandlerPlayServer) (Object) this, packet)) {
+            ci.cancel();
+        }
+    }
+}
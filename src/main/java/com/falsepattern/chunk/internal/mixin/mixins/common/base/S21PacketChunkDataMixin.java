@@ -23,11 +23,21 @@
 package com.falsepattern.chunk.internal.mixin.mixins.common.base;
 
 import com.falsepattern.chunk.internal.DataRegistryImpl;
-import com.falsepattern.chunk.internal.mixin.helpers.LockHelper;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionExecutor;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionHelper;
+import com.falsepattern.chunk.internal.mixin.helpers.PayloadCache;
+import com.falsepattern.chunk.internal.mixin.helpers.PresetDictionary;
+import com.falsepattern.chunk.internal.mixin.helpers.ScratchBuffers;
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
 import lombok.val;
+import lombok.var;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import net.minecraft.network.PacketBuffer;
 import net.minecraft.network.play.server.S21PacketChunkData;
@@ -36,15 +46,10 @@ import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 import java.io.IOException;
 import java.util.concurrent.Semaphore;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 @Mixin(S21PacketChunkData.class)
 public abstract class S21PacketChunkDataMixin {
 
-    @Shadow(aliases = "field_149286_i",
-            remap = false)
-    private static byte[] buffer;
     @Shadow(remap = false)
     private Semaphore deflateGate;
     @Shadow(aliases = "field_149284_a",
@@ -68,10 +73,16 @@ public abstract class S21PacketChunkDataMixin {
     @Shadow(aliases = "field_149285_h",
             remap = false)
     private int deflatedSize;
-
-    @Shadow(remap = false)
-    protected abstract void deflate();
-
+    @Unique
+    private PayloadCache.Entry chunkapi$cacheEntry;
+    /**
+     * Published once the deflate is done. The writer only reads the deflated data through it, the vanilla fields are not
+     * safely published to the netty thread.
+     */
+    @Unique
+    private volatile CompressionHelper.Deflated chunkapi$deflated;
+    @Unique
+    private int chunkapi$features;
 
     /**
      * @author FalsePattern
@@ -101,47 +112,95 @@ public abstract class S21PacketChunkDataMixin {
             }
         }
 
-        while (!LockHelper.bufferLockS21PacketChunkData.tryLock()) {
-            Thread.yield();
-        }
-        try {
-            if (buffer.length < DataRegistryImpl.maxPacketSize()) {
-                buffer = new byte[DataRegistryImpl.maxPacketSize()];
-            }
+        val mask = extracted.field_150280_b;
+        extracted.field_150282_a = PayloadCache.getOrExtract(chunk, mask, forceUpdate, ProtocolFeatures.encodeFeatures(), ProtocolFeatures.encodeManagers(), () -> extract(chunk, mask, forceUpdate));
+        return extracted;
+    }
 
-            int length = DataRegistryImpl.writeToBuffer(chunk, extracted.field_150280_b, forceUpdate, buffer);
+    private static byte[] extract(Chunk chunk, int subChunkMask, boolean forceUpdate) {
+        ScratchBuffers.beginExtraction();
+        try {
+            var data = DataRegistryImpl.writeToArray(chunk, subChunkMask, forceUpdate);
+            if (data == null) {
+                val scratch = ScratchBuffers.extractBuffer();
+                int length = DataRegistryImpl.writeToBuffer(chunk, subChunkMask, forceUpdate, scratch);
 
-            extracted.field_150282_a = new byte[length];
-            System.arraycopy(buffer, 0, extracted.field_150282_a, 0, length);
+                data = new byte[length];
+                System.arraycopy(scratch, 0, data, 0, length);
+            }
+            PresetDictionary.capture(data);
+            return data;
         } finally {
-            LockHelper.bufferLockS21PacketChunkData.unlock();
+            ScratchBuffers.endExtraction();
         }
-        return extracted;
     }
 
-    /**
-     * @author FalsePattern
-     * @reason Replace functionality
-     */
-    @Overwrite
-    public void writePacketData(PacketBuffer data) {
-        if (deflatedData == null) {
+    @Inject(method = "<init>(Lnet/minecraft/world/chunk/Chunk;ZI)V",
+            at = @At("RETURN"),
+            require = 1)
+    private void afterInit(Chunk chunk, boolean forceUpdate, int subChunkMask, CallbackInfo ci) {
+        val entry = PayloadCache.takeLastEntry();
+        if (entry != null && entry.data == data) {
+            chunkapi$cacheEntry = entry;
+        }
+        chunkapi$features = ProtocolFeatures.encodeFeatures();
+        if (CompressionExecutor.isEnabled()) {
+            CompressionExecutor.submit(this::chunkapi$deflateOnce);
+        }
+    }
+
+    @Unique
+    private CompressionHelper.Deflated chunkapi$deflateOnce() {
+        var deflated = chunkapi$deflated;
+        if (deflated == null) {
             deflateGate.acquireUninterruptibly();
             try {
-                if (deflatedData == null) {
+                deflated = chunkapi$deflated;
+                if (deflated == null) {
                     deflate();
+                    deflated = chunkapi$deflated;
                 }
             } finally {
                 deflateGate.release();
             }
         }
+        return deflated;
+    }
+
+    /**
+     * @author FalsePattern
+     * @reason Pooled deflater, compression policy
+     */
+    @Overwrite(remap = false)
+    private void deflate() {
+        val entry = chunkapi$cacheEntry;
+        var compressed = entry == null ? null : PayloadCache.getCompressed(entry);
+        if (compressed == null) {
+            compressed = CompressionHelper.compress(new byte[][]{data}, data.length, chunkapi$features);
+            if (entry != null) {
+                PayloadCache.putCompressed(entry, compressed);
+            }
+        }
+        deflatedSize = compressed.length;
+        deflatedData = compressed.data;
+        chunkapi$deflated = compressed;
+    }
+
+    /**
+     * @author FalsePattern
+     * @reason Replace functionality
+     */
+    @Overwrite
+    public void writePacketData(PacketBuffer data) {
+        val deflated = chunkapi$deflateOnce();
         data.writeInt(xPosition);
         data.writeInt(zPosition);
         data.writeBoolean(forceUpdate);
         data.writeShort((short) (subChunkMask & 0xFFFF));
         data.writeInt(this.data.length);
-        data.writeInt(deflatedSize);
-        data.writeBytes(deflatedData, 0, deflatedSize);
+        data.writeByte(deflated.format);
+        data.writeInt(deflated.length);
+        data.writeBytes(deflated.data, 0, deflated.length);
     }
 
     /**
@@ -154,20 +213,10 @@ public abstract class S21PacketChunkDataMixin {
         zPosition = data.readInt();
         forceUpdate = data.readBoolean();
         subChunkMask = data.readShort() & 0xFFFF;
-        this.data = new byte[data.readInt()];
+        this.data = new byte[CompressionHelper.readLength(data, DataRegistryImpl.maxPacketSize())];
+        val format = data.readUnsignedByte();
         deflatedSize = data.readInt();
-        if (buffer.length < deflatedSize) {
-            buffer = new byte[deflatedSize];
-        }
-        data.readBytes(buffer, 0, deflatedSize);
-        val inflater = new Inflater();
-        inflater.setInput(buffer, 0, deflatedSize);
-        try {
-            inflater.inflate(this.data);
-        } catch (DataFormatException dfe) {
-            throw new IOException("Bad compressed data format");
-        } finally {
-            inflater.end();
-        }
+        // Never touch the static vanilla buffer here, an integrated server might be using it at the same time.
+        CompressionHelper.decompress(data, format, deflatedSize, new byte[][]{this.data});
     }
 }
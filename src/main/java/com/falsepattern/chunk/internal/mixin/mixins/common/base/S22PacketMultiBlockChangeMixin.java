@@ -22,8 +22,8 @@
 
 package com.falsepattern.chunk.internal.mixin.mixins.common.base;
 
+import com.falsepattern.chunk.api.BlockChangeBatch;
 import com.falsepattern.chunk.internal.DataRegistryImpl;
-import com.falsepattern.chunk.internal.impl.CustomPacketBlockChange;
 import com.falsepattern.chunk.internal.impl.CustomPacketMultiBlockChange;
 import lombok.val;
 import org.spongepowered.asm.mixin.Mixin;
@@ -35,11 +35,11 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import net.minecraft.network.PacketBuffer;
 import net.minecraft.network.play.server.S22PacketMultiBlockChange;
-import net.minecraft.network.play.server.S23PacketBlockChange;
 import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.chunk.Chunk;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 @Mixin(S22PacketMultiBlockChange.class)
 public abstract class S22PacketMultiBlockChangeMixin implements CustomPacketMultiBlockChange {
@@ -47,7 +47,7 @@ public abstract class S22PacketMultiBlockChangeMixin implements CustomPacketMult
             remap = false)
     private ChunkCoordIntPair coord;
 
-    private S23PacketBlockChange[] subPackets;
+    private BlockChangeBatch batch;
 
     @SuppressWarnings("DefaultAnnotationParam")
     @Inject(method = "<init>(I[SLnet/minecraft/world/chunk/Chunk;)V",
@@ -62,15 +62,15 @@ public abstract class S22PacketMultiBlockChangeMixin implements CustomPacketMult
     @Override
     public void chunkapi$init(int count, short[] crammedPositions, Chunk chunk) {
         coord = new ChunkCoordIntPair(chunk.xPosition, chunk.zPosition);
-        subPackets = new S23PacketBlockChange[count];
+        batch = new BlockChangeBatch(chunk.xPosition, chunk.zPosition, Arrays.copyOf(crammedPositions, count));
         for (int i = 0; i < count; ++i) {
-            val subPacket = new S23PacketBlockChange();
-            int x = crammedPositions[i] >> 12 & 0xf;
-            int z = crammedPositions[i] >> 8 & 0xf;
-            int y = crammedPositions[i] & 0xff;
-            ((CustomPacketBlockChange) subPacket).chunkapi$init(x, y, z, chunk);
-            subPackets[i] = subPacket;
+            val x = batch.x(i);
+            val y = batch.y(i);
+            val z = batch.z(i);
+            batch.setBlock(i, chunk.getBlock(x, y, z));
+            batch.setMetadata(i, chunk.getBlockMetadata(x, y, z));
         }
+        DataRegistryImpl.writeBlocksToBatch(chunk, batch);
     }
 
 
@@ -84,20 +84,12 @@ public abstract class S22PacketMultiBlockChangeMixin implements CustomPacketMult
     public void readPacketData(PacketBuffer data) throws IOException {
         coord = new ChunkCoordIntPair(data.readInt(), data.readInt());
         int count = data.readVarIntFromBuffer();
-        subPackets = new S23PacketBlockChange[count];
+        val positions = new short[count];
         for (int i = 0; i < count; ++i) {
-            val subPacket = new S23PacketBlockChange();
-            subPackets[i] = subPacket;
-            val cSub = (CustomPacketBlockChange) subPacket;
-            val pos = data.readUnsignedShort();
-            val x = pos >> 12 & 0xf;
-            val z = pos >> 8 & 0xf;
-            val y = pos & 0xff;
-            cSub.chunkapi$x(x);
-            cSub.chunkapi$y(y);
-            cSub.chunkapi$z(z);
-            DataRegistryImpl.readBlockPacketFromBuffer(subPacket, data);
+            positions[i] = data.readShort();
         }
+        batch = new BlockChangeBatch(coord.chunkXPos, coord.chunkZPos, positions);
+        DataRegistryImpl.readBatchFromBuffer(batch, data);
     }
 
     /**
@@ -111,21 +103,17 @@ public abstract class S22PacketMultiBlockChangeMixin implements CustomPacketMult
         data.writeInt(coord.chunkXPos);
         data.writeInt(coord.chunkZPos);
 
-        if (subPackets != null) {
-            data.writeVarIntToBuffer(subPackets.length);
-            for (val subPacket : subPackets) {
-                val cSub = (CustomPacketBlockChange) subPacket;
-                int pos = ((cSub.chunkapi$x() & 0xf) << 12) | ((cSub.chunkapi$z() & 0xf) << 8) | (cSub.chunkapi$y() & 0xff);
-                data.writeShort(pos);
-                DataRegistryImpl.writeBlockPacketToBuffer(subPacket, data);
-            }
-        } else {
-            data.writeInt(0);
+        val batch = this.batch != null ? this.batch : new BlockChangeBatch(coord.chunkXPos, coord.chunkZPos, new short[0]);
+        val count = batch.size();
+        data.writeVarIntToBuffer(count);
+        for (int i = 0; i < count; ++i) {
+            data.writeShort(batch.position(i));
         }
+        DataRegistryImpl.writeBatchToBuffer(batch, data);
     }
 
     @Override
-    public S23PacketBlockChange[] chunkapi$subPackets() {
-        return subPackets;
+    public BlockChangeBatch chunkapi$batch() {
+        return batch;
     }
 }
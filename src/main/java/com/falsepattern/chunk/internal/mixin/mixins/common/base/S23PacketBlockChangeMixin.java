@@ -25,6 +25,8 @@ package com.falsepattern.chunk.internal.mixin.mixins.common.base;
 import com.falsepattern.chunk.internal.BlockPosUtil;
 import com.falsepattern.chunk.internal.DataRegistryImpl;
 import com.falsepattern.chunk.internal.impl.CustomPacketBlockChange;
+import com.falsepattern.chunk.internal.mixin.helpers.BlockChangeMetrics;
+import com.falsepattern.chunk.internal.network.ConnectionContext;
 import lombok.val;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
@@ -83,22 +85,35 @@ public abstract class S23PacketBlockChangeMixin implements CustomPacketBlockChan
      */
     @Overwrite
     public void readPacketData(PacketBuffer data) throws IOException {
-        long packed = data.readLong();
-        xCoord = BlockPosUtil.getX(packed);
-        yCoord = BlockPosUtil.getY(packed);
-        zCoord = BlockPosUtil.getZ(packed);
+        val cursor = ConnectionContext.blockCursor();
+        xCoord = cursor.x + BlockPosUtil.unZigZag(data.readVarIntFromBuffer());
+        yCoord = cursor.y + BlockPosUtil.unZigZag(data.readVarIntFromBuffer());
+        zCoord = cursor.z + BlockPosUtil.unZigZag(data.readVarIntFromBuffer());
+        cursor.x = xCoord;
+        cursor.y = yCoord;
+        cursor.z = zCoord;
         DataRegistryImpl.readBlockPacketFromBuffer((S23PacketBlockChange) (Object) this, data);
     }
 
     /**
+     * Writes the position as a delta from the previous block change sent on the same connection.
+     *
      * @author FalsePattern
      * @reason Integrate
      */
     @Overwrite
     public void writePacketData(PacketBuffer data) throws IOException {
-        long packed = BlockPosUtil.packToLong(xCoord, yCoord, zCoord);
-        data.writeLong(packed);
+        val start = data.writerIndex();
+        val cursor = ConnectionContext.blockCursor();
+        data.writeVarIntToBuffer(BlockPosUtil.zigZag(xCoord - cursor.x));
+        data.writeVarIntToBuffer(BlockPosUtil.zigZag(yCoord - cursor.y));
+        data.writeVarIntToBuffer(BlockPosUtil.zigZag(zCoord - cursor.z));
+        cursor.x = xCoord;
+        cursor.y = yCoord;
+        cursor.z = zCoord;
+        val positionEnd = data.writerIndex();
         DataRegistryImpl.writeBlockPacketToBuffer((S23PacketBlockChange) (Object) this, data);
+        BlockChangeMetrics.recordEncoded(positionEnd - start, data.writerIndex() - start);
     }
 
     @Override
@@ -22,12 +22,16 @@
 
 package com.falsepattern.chunk.internal.mixin.mixins.common.lookingglass;
 
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionHelper;
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
 import com.xcompwiz.lookingglass.log.LoggerUtils;
 import com.xcompwiz.lookingglass.network.LookingGlassPacketManager;
 import com.xcompwiz.lookingglass.network.packet.PacketChunkInfo;
 import com.xcompwiz.lookingglass.network.packet.PacketHandlerBase;
 import com.xcompwiz.lookingglass.network.packet.PacketRequestChunk;
 import io.netty.buffer.ByteBuf;
+import lombok.val;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
@@ -37,21 +41,12 @@ import net.minecraft.network.play.server.S21PacketChunkData;
 import net.minecraft.world.chunk.Chunk;
 import cpw.mods.fml.common.network.internal.FMLProxyPacket;
 
-import java.util.concurrent.Semaphore;
+import java.io.IOException;
 
 @Mixin(PacketChunkInfo.class)
 public abstract class PacketChunkInfoMixin extends PacketHandlerBase {
-    @Shadow(remap = false) private static Semaphore deflateGate;
-
-    @Shadow(remap = false)
-    private static int deflate(byte[] chunkData, byte[] compressedChunkData) {
-        return 0;
-    }
-
     @Shadow(remap = false) public abstract void handle(EntityPlayer player, byte[] chunkData, int dim, int xPos, int zPos, boolean reqinit, short yPos, short yMSBPos);
 
-    @Shadow(remap = false) protected abstract byte[] inflateChunkData(ByteBuf in, int compressedsize, int uncompressedsize);
-
     /**
      * @author FalsePattern
      * @reason This class was just copied vanilla code.
@@ -72,20 +67,19 @@ public abstract class PacketChunkInfoMixin extends PacketHandlerBase {
         S21PacketChunkData.Extracted extracted = getMapChunkData(chunk, forceUpdate, subChunkMask);
         int realSubChunkMask = extracted.field_150280_b;
         byte[] chunkData = extracted.field_150282_a;
-        deflateGate.acquireUninterruptibly();
-        byte[] compressedChunkData = new byte[chunkData.length];
-        int len = deflate(chunkData, compressedChunkData);
-        deflateGate.release();
+        val compressed = CompressionHelper.compress(new byte[][]{chunkData}, chunkData.length, ProtocolFeatures.encodeFeatures());
+        int len = compressed.length;
         ByteBuf data = PacketHandlerBase.createDataBuffer(PacketChunkInfo.class);
         data.writeInt(dim);
         data.writeInt(xPos);
         data.writeInt(zPos);
         data.writeBoolean(forceUpdate);
         data.writeShort((short)(realSubChunkMask & 0xFFFF));
+        data.writeByte(compressed.format);
         data.writeInt(len);
         data.writeInt(chunkData.length);
         data.ensureWritable(len);
-        data.writeBytes(compressedChunkData, 0, len);
+        data.writeBytes(compressed.data, 0, len);
         return buildPacket(data);
     }
 
@@ -100,9 +94,16 @@ public abstract class PacketChunkInfoMixin extends PacketHandlerBase {
         int zPos = in.readInt();
         boolean forceUpdate = in.readBoolean();
         int subChunkMask = in.readShort() & 0xFFFF;
+        int format = in.readUnsignedByte();
         int compressedSize = in.readInt();
         int uncompressedSize = in.readInt();
-        byte[] chunkData = this.inflateChunkData(in, compressedSize, uncompressedSize);
+        byte[] chunkData;
+        try {
+            chunkData = new byte[CompressionHelper.checkLength(uncompressedSize, DataRegistryImpl.maxPacketSize())];
+            CompressionHelper.decompress(in, format, compressedSize, new byte[][]{chunkData});
+        } catch (IOException e) {
+            chunkData = null;
+        }
         if (chunkData == null) {
             LookingGlassPacketManager.bus.sendToServer(PacketRequestChunk.createPacket(xPos, subChunkMask, zPos, dim));
             LoggerUtils.error("Chunk decompression failed: \t%d\t\t%d : %d\n", subChunkMask, compressedSize, uncompressedSize);
@@ -23,26 +23,28 @@
 
 package com.falsepattern.chunk.internal.mixin.mixins.common.thermos;
 
-import com.falsepattern.chunk.internal.mixin.helpers.LockHelper;
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionExecutor;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionHelper;
 import lombok.val;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import net.minecraft.network.PacketBuffer;
-import net.minecraft.network.play.server.S21PacketChunkData;
 import net.minecraft.network.play.server.S26PacketMapChunkBulk;
+import net.minecraft.world.chunk.Chunk;
 
 import java.io.IOException;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
+import java.util.List;
 
 
 @Mixin(S26PacketMapChunkBulk.class)
 public abstract class S26PacketMapChunkBulkMixin {
-    @Shadow(aliases = "field_149268_i",
-            remap = false)
-    private byte[] inflaterBuffer;
     @Shadow(aliases = "field_149263_e",
             remap = false)
     private byte[] deflatedData;
@@ -78,57 +80,49 @@ public abstract class S26PacketMapChunkBulkMixin {
     @Overwrite
     public void readPacketData(PacketBuffer data) throws IOException {
         short chunkCount = data.readShort();
-        val sizes = new int[chunkCount];
+        if (chunkCount < 0) {
+            throw new IOException("Negative chunk count " + chunkCount);
+        }
+        datas = new byte[chunkCount][];
+        val maxLength = DataRegistryImpl.maxPacketSize();
         for (int i = 0; i < chunkCount; i++) {
-            sizes[i] = data.readInt();
+            datas[i] = new byte[CompressionHelper.readLength(data, maxLength)];
         }
+        val format = data.readUnsignedByte();
         deflatedSize = data.readInt();
         skylight = data.readBoolean();
         xPositions = new int[chunkCount];
         zPositions = new int[chunkCount];
         subChunkMasks = new int[chunkCount];
         subChunkMSBMasks = new int[chunkCount];
-        datas = new byte[chunkCount][];
-
-        while (!LockHelper.bufferLockS26PacketMapChunkBulk.tryLock()) {
-            Thread.yield();
-        }
-        byte[] buf;
-        try {
-            if (inflaterBuffer.length < deflatedSize) {
-                inflaterBuffer = new byte[deflatedSize];
-            }
-
-            data.readBytes(inflaterBuffer, 0, deflatedSize);
-            buf = new byte[S21PacketChunkData.func_149275_c() * chunkCount];
-            Inflater inflater = new Inflater();
-            inflater.setInput(inflaterBuffer, 0, deflatedSize);
 
-            try {
-                inflater.inflate(buf);
-            } catch (DataFormatException dataformatexception) {
-                throw new IOException("Bad compressed data format");
-            } finally {
-                inflater.end();
-            }
-        } finally {
-            LockHelper.bufferLockS26PacketMapChunkBulk.unlock();
-        }
-
-        int pos = 0;
+        // The uncompressed sizes are known up front, so inflate directly into the final arrays
+        CompressionHelper.decompress(data, format, deflatedSize, datas);
 
         for (int i = 0; i < chunkCount; ++i) {
-            val size = sizes[i];
             xPositions[i] = data.readInt();
             zPositions[i] = data.readInt();
             subChunkMasks[i] = data.readUnsignedShort();
-
-            datas[i] = new byte[size];
-            System.arraycopy(buf, pos, datas[i], 0, size);
-            pos += size;
         }
     }
     
+    @Inject(method = "<init>(Ljava/util/List;)V",
+            at = @At("RETURN"),
+            require = 1)
+    private void compressAsync(List<Chunk> chunks, CallbackInfo ci) {
+        if (CompressionExecutor.isEnabled()) {
+            CompressionExecutor.submit(this::chunkapi$compress);
+        }
+    }
+
+    /**
+     * Thermos has no deflate gate, so the executor and the netty thread must not run compress() at the same time.
+     */
+    @Unique
+    private synchronized void chunkapi$compress() {
+        compress();
+    }
+
     /**
      * @author FalsePattern
      * @author Cardinalstar16
@@ -136,12 +130,14 @@ public abstract class S26PacketMapChunkBulkMixin {
      */
     @Overwrite
     public void writePacketData(PacketBuffer data) {
-        compress();
+        chunkapi$compress();
 
         data.writeShort(xPositions.length);
         for (byte[] bytes : datas) {
             data.writeInt(bytes.length);
         }
+        // Thermos' compress() always deflates, at its own level
+        data.writeByte(CompressionHelper.DEFLATED);
         data.writeInt(deflatedSize);
         data.writeBoolean(skylight);
         data.writeBytes(deflatedData, 0, deflatedSize);
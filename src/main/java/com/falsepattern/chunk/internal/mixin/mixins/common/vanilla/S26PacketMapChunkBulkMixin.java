@@ -22,26 +22,30 @@
 
 package com.falsepattern.chunk.internal.mixin.mixins.common.vanilla;
 
-import com.falsepattern.chunk.internal.mixin.helpers.LockHelper;
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionExecutor;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionHelper;
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
 import lombok.val;
+import lombok.var;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import net.minecraft.network.PacketBuffer;
-import net.minecraft.network.play.server.S21PacketChunkData;
 import net.minecraft.network.play.server.S26PacketMapChunkBulk;
+import net.minecraft.world.chunk.Chunk;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Semaphore;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 @Mixin(S26PacketMapChunkBulk.class)
 public abstract class S26PacketMapChunkBulkMixin {
-    @Shadow(aliases = "field_149268_i",
-            remap = false)
-    private static byte[] inflaterBuffer;
     @Shadow(aliases = "field_149263_e",
             remap = false)
     private byte[] deflatedData;
@@ -68,9 +72,13 @@ public abstract class S26PacketMapChunkBulkMixin {
     @Shadow(aliases = "field_149260_f",
             remap = false)
     private byte[][] datas;
-
-    @Shadow(remap = false)
-    protected abstract void deflate();
+    /**
+     * Published once the deflate is done, see S21PacketChunkDataMixin.
+     */
+    @Unique
+    private volatile CompressionHelper.Deflated chunkapi$deflated;
+    @Unique
+    private int chunkapi$features;
 
     /**
      * @author FalsePattern
@@ -79,78 +87,92 @@ public abstract class S26PacketMapChunkBulkMixin {
     @Overwrite
     public void readPacketData(PacketBuffer data) throws IOException {
         short chunkCount = data.readShort();
-        val sizes = new int[chunkCount];
+        if (chunkCount < 0) {
+            throw new IOException("Negative chunk count " + chunkCount);
+        }
+        datas = new byte[chunkCount][];
+        val maxLength = DataRegistryImpl.maxPacketSize();
         for (int i = 0; i < chunkCount; i++) {
-            sizes[i] = data.readInt();
+            datas[i] = new byte[CompressionHelper.readLength(data, maxLength)];
         }
+        val format = data.readUnsignedByte();
         deflatedSize = data.readInt();
         skylight = data.readBoolean();
         xPositions = new int[chunkCount];
         zPositions = new int[chunkCount];
         subChunkMasks = new int[chunkCount];
         subChunkMSBMasks = new int[chunkCount];
-        datas = new byte[chunkCount][];
 
-        while (!LockHelper.bufferLockS26PacketMapChunkBulk.tryLock()) {
-            Thread.yield();
-        }
-        byte[] buf;
-        try {
-            if (inflaterBuffer.length < deflatedSize) {
-                inflaterBuffer = new byte[deflatedSize];
-            }
+        // The uncompressed sizes are known up front, so inflate directly into the final arrays
+        CompressionHelper.decompress(data, format, deflatedSize, datas);
 
-            data.readBytes(inflaterBuffer, 0, deflatedSize);
-            buf = new byte[S21PacketChunkData.func_149275_c() * chunkCount];
-            Inflater inflater = new Inflater();
-            inflater.setInput(inflaterBuffer, 0, deflatedSize);
+        for (int i = 0; i < chunkCount; ++i) {
+            xPositions[i] = data.readInt();
+            zPositions[i] = data.readInt();
+            subChunkMasks[i] = data.readUnsignedShort();
+        }
+    }
+    
+    @Inject(method = "<init>(Ljava/util/List;)V",
+            at = @At("RETURN"),
+            require = 1)
+    private void deflateAsync(List<Chunk> chunks, CallbackInfo ci) {
+        chunkapi$features = ProtocolFeatures.encodeFeatures();
+        if (CompressionExecutor.isEnabled()) {
+            CompressionExecutor.submit(this::chunkapi$deflateOnce);
+        }
+    }
 
+    @Unique
+    private CompressionHelper.Deflated chunkapi$deflateOnce() {
+        var deflated = chunkapi$deflated;
+        if (deflated == null) {
+            deflateGate.acquireUninterruptibly();
             try {
-                inflater.inflate(buf);
-            } catch (DataFormatException dataformatexception) {
-                throw new IOException("Bad compressed data format");
+                deflated = chunkapi$deflated;
+                if (deflated == null) {
+                    deflate();
+                    deflated = chunkapi$deflated;
+                }
             } finally {
-                inflater.end();
+                deflateGate.release();
             }
-        } finally {
-            LockHelper.bufferLockS26PacketMapChunkBulk.unlock();
         }
+        return deflated;
+    }
 
-        int pos = 0;
-
-        for (int i = 0; i < chunkCount; ++i) {
-            val size = sizes[i];
-            xPositions[i] = data.readInt();
-            zPositions[i] = data.readInt();
-            subChunkMasks[i] = data.readUnsignedShort();
-
-            datas[i] = new byte[size];
-            System.arraycopy(buf, pos, datas[i], 0, size);
-            pos += size;
+    /**
+     * @author FalsePattern
+     * @reason Pooled deflater, deflate the chunks without concatenating them first, compression policy
+     */
+    @Overwrite(remap = false)
+    private void deflate() {
+        int length = 0;
+        for (val bytes : datas) {
+            length += bytes.length;
         }
+        val compressed = CompressionHelper.compress(datas, length, chunkapi$features);
+        deflatedSize = compressed.length;
+        deflatedData = compressed.data;
+        chunkapi$deflated = compressed;
     }
-    
+
     /**
      * @author FalsePattern
      * @reason Replace functionality
      */
     @Overwrite
     public void writePacketData(PacketBuffer data) {
-        if (deflatedData == null) {
-            deflateGate.acquireUninterruptibly();
-            if (deflatedData == null) {
-                deflate();
-            }
-            deflateGate.release();
-        }
+        val deflated = chunkapi$deflateOnce();
 
         data.writeShort(xPositions.length);
         for (byte[] bytes : datas) {
             data.writeInt(bytes.length);
         }
-        data.writeInt(deflatedSize);
+        data.writeByte(deflated.format);
+        data.writeInt(deflated.length);
         data.writeBoolean(skylight);
-        data.writeBytes(deflatedData, 0, deflatedSize);
+        data.writeBytes(deflated.data, 0, deflated.length);
 
         for (int i = 0; i < xPositions.length; ++i) {
             data.writeInt(xPositions[i]);
@@ -53,11 +53,19 @@ public enum Mixin implements IMixins {
                 common("thermos.S26PacketMapChunkBulkMixin")),
     
     CommonCore(Phase.EARLY,
-               common("base.PlayerInstanceMixin",
+               common("base.ChunkStampMixin",
+                      "base.EntityPlayerMPMixin",
+                      "base.ExtendedBlockStorageMixin",
+                      "base.ExtendedBlockStorageStampMixin",
+                      "base.MessageDeserializerMixin",
+                      "base.MessageSerializerMixin",
+                      "base.NetHandlerPlayServerMixin",
+                      "base.PlayerInstanceMixin",
                       "base.S21PacketChunkDataMixin",
                       "base.S22PacketMultiBlockChangeMixin",
                       "base.S23PacketBlockChangeMixin"),
-               client("vanilla.NetHandlerPlayClientMixin")),
+               client("vanilla.NetHandlerPlayClientMixin",
+                      "vanilla.NetworkManagerMixin")),
     
     //from: https://github.com/BallOfEnergy1/ChunkAPI/commit/4f5c0e60e04b6892d206f5f5d93cb20ba6b45608
     Core_NoSpool(Phase.EARLY,
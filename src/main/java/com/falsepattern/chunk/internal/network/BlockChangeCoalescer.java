@@ -0,0 +1,219 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.BlockPosUtil;
+import com.falsepattern.chunk.internal.Metrics;
+import com.falsepattern.chunk.internal.impl.CustomPacketBlockChange;
+import com.falsepattern.chunk.internal.impl.CustomPacketMultiBlockChange;
+import lombok.val;
+import lombok.var;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.Packet;
+import net.minecraft.network.play.server.S07PacketRespawn;
+import net.minecraft.network.play.server.S21PacketChunkData;
+import net.minecraft.network.play.server.S22PacketMultiBlockChange;
+import net.minecraft.network.play.server.S23PacketBlockChange;
+import net.minecraft.network.play.server.S24PacketBlockAction;
+import net.minecraft.network.play.server.S26PacketMapChunkBulk;
+import net.minecraft.network.play.server.S35PacketUpdateTileEntity;
+import net.minecraft.network.play.server.S3FPacketCustomPayload;
+import cpw.mods.fml.common.eventhandler.EventPriority;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional per-player coalescing of single block changes, enabled with {@code -D}{@value #ENABLED_PROPERTY}{@code =true}.
+ * <p>
+ * Block changes sent to a player on the server thread are held back until the end of the tick, keeping only the latest
+ * one per position. Chunks with at least {@value #MERGE_THRESHOLD_PROPERTY} (default {@value #DEFAULT_MERGE_THRESHOLD})
+ * pending changes are sent as a single multi-block change instead. Packets that depend on the blocks being up to date on
+ * the client (chunk data, tile entities, block events, respawns, and custom payloads, which mods use for tile entity
+ * descriptions) flush the pending changes of their player first.
+ * <p>
+ * Changes marked through {@code markBlockForUpdate} in the same tick are already deduplicated by PlayerInstance, so
+ * this mainly helps with block changes that mods send directly.
+ */
+public class BlockChangeCoalescer {
+    public static final String ENABLED_PROPERTY = "chunkapi.blockchange.coalesce";
+    public static final String MERGE_THRESHOLD_PROPERTY = "chunkapi.blockchange.merge";
+    private static final int DEFAULT_MERGE_THRESHOLD = 8;
+
+    private static final boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    private static final int mergeThreshold = Math.max(2, Integer.getInteger(MERGE_THRESHOLD_PROPERTY, DEFAULT_MERGE_THRESHOLD));
+
+    private static final LongAdder held = Metrics.counter("blockchange.coalesce.held");
+    private static final LongAdder duplicates = Metrics.counter("blockchange.coalesce.duplicates");
+    private static final LongAdder merged = Metrics.counter("blockchange.coalesce.merged");
+    private static final LongAdder mergedPackets = Metrics.counter("blockchange.coalesce.merged.packets");
+
+    private static final Map<NetHandlerPlayServer, Map<Long, S23PacketBlockChange>> pending = new LinkedHashMap<>();
+    private static Thread serverThread;
+    private static boolean flushing;
+
+    /**
+     * Called for every packet sent to a player.
+     *
+     * @return True if the packet was held back, and must not be sent now.
+     */
+    public static boolean intercept(NetHandlerPlayServer handler, Packet packet) {
+        if (!enabled || flushing || Thread.currentThread() != serverThread) {
+            return false;
+        }
+        if (packet instanceof S23PacketBlockChange) {
+            val cPacket = (CustomPacketBlockChange) packet;
+            val key = BlockPosUtil.packToLong(cPacket.chunkapi$x(), cPacket.chunkapi$y(), cPacket.chunkapi$z());
+            var forPlayer = pending.get(handler);
+            if (forPlayer == null) {
+                forPlayer = new LinkedHashMap<>();
+                pending.put(handler, forPlayer);
+            }
+            held.increment();
+            if (forPlayer.put(key, (S23PacketBlockChange) packet) != null) {
+                duplicates.increment();
+            }
+            return true;
+        }
+        if (isRelated(packet)) {
+            val forPlayer = pending.remove(handler);
+            if (forPlayer != null) {
+                flush(handler, forPlayer);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRelated(Packet packet) {
+        return packet instanceof S21PacketChunkData ||
+               packet instanceof S22PacketMultiBlockChange ||
+               packet instanceof S26PacketMapChunkBulk ||
+               packet instanceof S24PacketBlockAction ||
+               packet instanceof S35PacketUpdateTileEntity ||
+               packet instanceof S3FPacketCustomPayload ||
+               packet instanceof FMLProxyPacket ||
+               packet instanceof S07PacketRespawn;
+    }
+
+    public static void clear() {
+        pending.clear();
+    }
+
+    private static void flush(NetHandlerPlayServer handler, Map<Long, S23PacketBlockChange> packets) {
+        flushing = true;
+        try {
+            if (packets.size() < mergeThreshold) {
+                for (val packet : packets.values()) {
+                    handler.sendPacket(packet);
+                }
+                return;
+            }
+            val byChunk = new LinkedHashMap<Long, List<S23PacketBlockChange>>();
+            for (val packet : packets.values()) {
+                val cPacket = (CustomPacketBlockChange) packet;
+                val chunkKey = (long) (cPacket.chunkapi$x() >> 4) << 32 | (cPacket.chunkapi$z() >> 4) & 0xFFFFFFFFL;
+                var inChunk = byChunk.get(chunkKey);
+                if (inChunk == null) {
+                    inChunk = new ArrayList<>();
+                    byChunk.put(chunkKey, inChunk);
+                }
+                inChunk.add(packet);
+            }
+            for (val inChunk : byChunk.values()) {
+                if (inChunk.size() >= mergeThreshold && merge(handler, inChunk)) {
+                    continue;
+                }
+                for (val packet : inChunk) {
+                    handler.sendPacket(packet);
+                }
+            }
+        } finally {
+            flushing = false;
+        }
+    }
+
+    /**
+     * Sends the changes as one multi-block change, with the current state of the chunk.
+     *
+     * @return False if the changes have to be sent one by one.
+     */
+    private static boolean merge(NetHandlerPlayServer handler, List<S23PacketBlockChange> packets) {
+        val first = (CustomPacketBlockChange) packets.get(0);
+        val chunkX = first.chunkapi$x() >> 4;
+        val chunkZ = first.chunkapi$z() >> 4;
+        val world = handler.playerEntity.worldObj;
+        if (!world.getChunkProvider().chunkExists(chunkX, chunkZ)) {
+            return false;
+        }
+        val positions = new short[packets.size()];
+        for (int i = 0; i < positions.length; i++) {
+            val cPacket = (CustomPacketBlockChange) packets.get(i);
+            val y = cPacket.chunkapi$y();
+            if (y < 0 || y > 255) {
+                return false;
+            }
+            positions[i] = (short) ((cPacket.chunkapi$x() & 0xf) << 12 | (cPacket.chunkapi$z() & 0xf) << 8 | y);
+        }
+        val packet = new S22PacketMultiBlockChange();
+        ((CustomPacketMultiBlockChange) packet).chunkapi$init(positions.length, positions, world.getChunkFromChunkCoords(chunkX, chunkZ));
+        handler.sendPacket(packet);
+        merged.add(positions.length);
+        mergedPackets.increment();
+        return true;
+    }
+
+    /**
+     * Runs before the other end of tick handlers, so the held back changes go out before the partial chunk updates of
+     * the {@link DirtyChunkTracker}, which may carry newer data for the same blocks.
+     */
+    @SubscribeEvent(priority = EventPriority.HIGH)
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            serverThread = Thread.currentThread();
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (val entry : pending.entrySet()) {
+            flush(entry.getKey(), entry.getValue());
+        }
+        pending.clear();
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (event.player instanceof EntityPlayerMP) {
+            pending.remove(((EntityPlayerMP) event.player).playerNetServerHandler);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.Tags;
+import lombok.val;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.PlayerEvent;
+import cpw.mods.fml.common.network.FMLNetworkEvent;
+import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.simpleimpl.SimpleNetworkWrapper;
+import cpw.mods.fml.relauncher.Side;
+
+public class ChunkAPINetwork {
+    public static final SimpleNetworkWrapper CHANNEL = NetworkRegistry.INSTANCE.newSimpleChannel(Tags.MOD_ID);
+
+    public static void init() {
+        CHANNEL.registerMessage(ManagerTableMessage.Handler.class, ManagerTableMessage.class, 0, Side.CLIENT);
+        CHANNEL.registerMessage(PartialChunkDataMessage.Handler.class, PartialChunkDataMessage.class, 1, Side.CLIENT);
+        CHANNEL.registerMessage(ClientFeaturesMessage.Handler.class, ClientFeaturesMessage.class, 2, Side.SERVER);
+        val bus = FMLCommonHandler.instance().bus();
+        bus.register(new ChunkAPINetwork());
+        bus.register(new BlockChangeCoalescer());
+        bus.register(new DirtyChunkTracker());
+        if (FMLCommonHandler.instance().getSide().isClient()) {
+            bus.register(new PartialChunkDataClient());
+        }
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        if (!(event.player instanceof EntityPlayerMP)) {
+            return;
+        }
+        // Fired before the player gets ticked for the first time, so this always arrives before the first chunk.
+        ProtocolFeatures.addConnection(((EntityPlayerMP) event.player).playerNetServerHandler.netManager);
+        CHANNEL.sendTo(new ManagerTableMessage(DataRegistryImpl.getPacketManagerIds(),
+                                               DataRegistryImpl.getCubicPacketManagerIds(),
+                                               DataRegistryImpl.getBlockPacketManagerIds()), (EntityPlayerMP) event.player);
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (!(event.player instanceof EntityPlayerMP)) {
+            return;
+        }
+        ProtocolFeatures.removeConnection(((EntityPlayerMP) event.player).playerNetServerHandler.netManager);
+    }
+
+    @SubscribeEvent
+    public void onClientDisconnect(FMLNetworkEvent.ClientDisconnectionFromServerEvent event) {
+        DataRegistryImpl.clearRemoteManagerIds();
+        PartialChunkDataClient.clear();
+    }
+}
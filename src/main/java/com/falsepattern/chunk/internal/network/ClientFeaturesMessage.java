@@ -0,0 +1,93 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.ManagerSet;
+import io.netty.buffer.ByteBuf;
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+
+import java.util.BitSet;
+
+/**
+ * The client's reply to the {@link ManagerTableMessage}, see {@link ProtocolFeatures}.
+ */
+@NoArgsConstructor
+public class ClientFeaturesMessage implements IMessage {
+    // More than enough for any real manager table, keeps a bogus length from allocating a huge array
+    private static final int MAX_BITSET_BYTES = 1024;
+
+    private int features;
+    private int dictionaryVersion;
+    /**
+     * The network ids of the server's packet, cubic packet and block packet managers this client has.
+     */
+    private BitSet[] managers;
+
+    public ClientFeaturesMessage(int features, int dictionaryVersion, BitSet[] managers) {
+        this.features = features;
+        this.dictionaryVersion = dictionaryVersion;
+        this.managers = managers;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        features = ByteBufUtils.readVarInt(buf, 5);
+        dictionaryVersion = buf.readUnsignedByte();
+        managers = new BitSet[3];
+        for (int i = 0; i < managers.length; i++) {
+            val length = ByteBufUtils.readVarInt(buf, 5);
+            if (length > MAX_BITSET_BYTES) {
+                throw new IllegalArgumentException("Manager bitset too long: " + length);
+            }
+            val bytes = new byte[length];
+            buf.readBytes(bytes);
+            managers[i] = BitSet.valueOf(bytes);
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        ByteBufUtils.writeVarInt(buf, features, 5);
+        buf.writeByte(dictionaryVersion);
+        for (val bits : managers) {
+            val bytes = bits.toByteArray();
+            ByteBufUtils.writeVarInt(buf, bytes.length, 5);
+            buf.writeBytes(bytes);
+        }
+    }
+
+    public static class Handler implements IMessageHandler<ClientFeaturesMessage, IMessage> {
+        @Override
+        public IMessage onMessage(ClientFeaturesMessage message, MessageContext ctx) {
+            val managers = ManagerSet.of(message.managers[0], message.managers[1], message.managers[2]);
+            ProtocolFeatures.setFeatures(ctx.getServerHandler().netManager, message.features, message.dictionaryVersion, managers);
+            return null;
+        }
+    }
+}
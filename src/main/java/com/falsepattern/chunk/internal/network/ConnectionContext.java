@@ -0,0 +1,88 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.ManagerSet;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.val;
+import lombok.var;
+
+/**
+ * Per-connection state for packets that are encoded relative to the previous packet sent on the same connection.
+ * <p>
+ * Packets don't know which connection they are written to or read from, so the netty encoder and decoder publish the
+ * channel of the packet they are currently handling. The state is only ever touched from the event loop of its channel,
+ * in the same order the packets go over the wire, so both sides always agree on it.
+ */
+public class ConnectionContext {
+    private static final AttributeKey<BlockCursor> BLOCK_CURSOR = new AttributeKey<>("chunkapi:block_cursor");
+    private static final AttributeKey<ManagerSet> MANAGERS = new AttributeKey<>("chunkapi:managers");
+    private static final ThreadLocal<Channel> current = new ThreadLocal<>();
+
+    public static void begin(Channel channel) {
+        current.set(channel);
+    }
+
+    public static void end() {
+        current.remove();
+    }
+
+    /**
+     * @return The position of the last block change on the current connection. If the packet is not being encoded or
+     * decoded for a connection (so the bytes never go over the wire), a throwaway cursor at the origin.
+     */
+    public static BlockCursor blockCursor() {
+        val channel = current.get();
+        if (channel == null) {
+            return new BlockCursor();
+        }
+        val attribute = channel.attr(BLOCK_CURSOR);
+        var cursor = attribute.get();
+        if (cursor == null) {
+            cursor = new BlockCursor();
+            attribute.set(cursor);
+        }
+        return cursor;
+    }
+
+    static void setManagers(Channel channel, ManagerSet managers) {
+        channel.attr(MANAGERS).set(managers);
+    }
+
+    /**
+     * @return The managers the other side of the current connection reported, or all of them if it did not report yet.
+     */
+    public static ManagerSet managers() {
+        val channel = current.get();
+        val managers = channel == null ? null : channel.attr(MANAGERS).get();
+        return managers == null ? DataRegistryImpl.allManagers() : managers;
+    }
+
+    public static class BlockCursor {
+        public int x;
+        public int y;
+        public int z;
+    }
+}
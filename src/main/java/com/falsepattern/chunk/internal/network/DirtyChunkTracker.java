@@ -0,0 +1,90 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import lombok.var;
+
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the managers marked dirty during a server tick, and sends their data to the players watching each chunk at
+ * the end of the tick. Server thread only.
+ */
+public class DirtyChunkTracker {
+    private static final Map<Chunk, DirtyChunk> dirtyChunks = new LinkedHashMap<>();
+
+    @RequiredArgsConstructor
+    private static class DirtyChunk {
+        public final int[] masks;
+        public final boolean[] dirty;
+    }
+
+    public static void markDirty(Chunk chunk, int networkId, int subChunkMask) {
+        if (chunk.worldObj.isRemote) {
+            return;
+        }
+        var entry = dirtyChunks.get(chunk);
+        if (entry == null) {
+            val managerCount = DataRegistryImpl.packetManagerCount();
+            entry = new DirtyChunk(new int[managerCount], new boolean[managerCount]);
+            dirtyChunks.put(chunk, entry);
+        }
+        entry.masks[networkId] |= subChunkMask;
+        entry.dirty[networkId] = true;
+    }
+
+    public static void clear() {
+        dirtyChunks.clear();
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || dirtyChunks.isEmpty()) {
+            return;
+        }
+        for (val dirtyChunk : dirtyChunks.entrySet()) {
+            val chunk = dirtyChunk.getKey();
+            if (!chunk.isChunkLoaded) {
+                continue;
+            }
+            val world = (WorldServer) chunk.worldObj;
+            val watcher = world.getPlayerManager().func_72690_a(chunk.xPosition, chunk.zPosition, false);
+            if (watcher == null) {
+                continue;
+            }
+            val entry = dirtyChunk.getValue();
+            val data = DataRegistryImpl.writePartialToArray(chunk, entry.masks, entry.dirty);
+            watcher.sendToAllPlayersWatchingChunk(ChunkAPINetwork.CHANNEL.getPacketFrom(new PartialChunkDataMessage(chunk.xPosition, chunk.zPosition, data)));
+        }
+        dirtyChunks.clear();
+    }
+}
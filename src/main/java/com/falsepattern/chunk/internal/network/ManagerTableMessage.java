@@ -0,0 +1,88 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.mixin.helpers.PresetDictionary;
+import io.netty.buffer.ByteBuf;
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+
+/**
+ * Sent to every player on login. Assigns the network ids used in place of the manager names inside chunk and block packets.
+ */
+@NoArgsConstructor
+public class ManagerTableMessage implements IMessage {
+    private String[] packetIds;
+    private String[] cubicIds;
+    private String[] blockIds;
+
+    public ManagerTableMessage(String[] packetIds, String[] cubicIds, String[] blockIds) {
+        this.packetIds = packetIds;
+        this.cubicIds = cubicIds;
+        this.blockIds = blockIds;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        packetIds = readIds(buf);
+        cubicIds = readIds(buf);
+        blockIds = readIds(buf);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        writeIds(buf, packetIds);
+        writeIds(buf, cubicIds);
+        writeIds(buf, blockIds);
+    }
+
+    private static String[] readIds(ByteBuf buf) {
+        val ids = new String[ByteBufUtils.readVarInt(buf, 5)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = ByteBufUtils.readUTF8String(buf);
+        }
+        return ids;
+    }
+
+    private static void writeIds(ByteBuf buf, String[] ids) {
+        ByteBufUtils.writeVarInt(buf, ids.length, 5);
+        for (val id : ids) {
+            ByteBufUtils.writeUTF8String(buf, id);
+        }
+    }
+
+    public static class Handler implements IMessageHandler<ManagerTableMessage, IMessage> {
+        @Override
+        public IMessage onMessage(ManagerTableMessage message, MessageContext ctx) {
+            // Runs on the netty thread, so the table is in place before any chunk or block packet after it gets decoded.
+            DataRegistryImpl.setRemoteManagerIds(message.packetIds, message.cubicIds, message.blockIds);
+            return new ClientFeaturesMessage(ProtocolFeatures.SUPPORTED, PresetDictionary.version(), DataRegistryImpl.knownRemoteManagers());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.Metrics;
+import lombok.val;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.chunk.EmptyChunk;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies the received partial chunk updates on the client thread. Only registered on the client.
+ * <p>
+ * Partial updates arrive on the netty thread, in wire order with the vanilla chunk packets, but vanilla applies those
+ * later on the client thread. Every chunk counts the full chunks that arrived and the ones that were applied. A partial
+ * update waits until every full chunk that arrived before it was applied, and is dropped if another full chunk arrived
+ * after it, since that one already contains the update.
+ */
+public class PartialChunkDataClient {
+    private static final Queue<PartialChunkDataMessage> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * Only used on the client thread, in wire order. Cleared when the world is gone.
+     */
+    private static final Deque<PartialChunkDataMessage> waiting = new ArrayDeque<>();
+    /**
+     * Only written by the netty thread, in the order the packets arrive. Cleared on disconnect.
+     */
+    private static final Map<Long, Integer> arrivedFullChunks = new ConcurrentHashMap<>();
+    /**
+     * Only written by the client thread, when vanilla applied the packet. Cleared on disconnect.
+     */
+    private static final Map<Long, Integer> appliedFullChunks = new ConcurrentHashMap<>();
+
+    private static final LongAdder outdated = Metrics.counter("partial.outdated");
+
+    static void enqueue(PartialChunkDataMessage message) {
+        message.generation = count(arrivedFullChunks, message.chunkX, message.chunkZ);
+        pending.add(message);
+    }
+
+    /**
+     * Called on the netty thread when full data of a chunk arrives, before it is handed to the client thread.
+     */
+    public static void onFullChunkReceived(int chunkX, int chunkZ) {
+        arrivedFullChunks.merge(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ), 1, Integer::sum);
+    }
+
+    /**
+     * Called on the client thread once full data of a chunk was applied.
+     */
+    public static void onFullChunkApplied(int chunkX, int chunkZ) {
+        appliedFullChunks.merge(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ), 1, Integer::sum);
+    }
+
+    private static int count(Map<Long, Integer> counts, int chunkX, int chunkZ) {
+        return counts.getOrDefault(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ), 0);
+    }
+
+    static void clear() {
+        pending.clear();
+        arrivedFullChunks.clear();
+        appliedFullChunks.clear();
+    }
+
+    @SubscribeEvent
+    public void onClientTick(TickEvent.ClientTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        PartialChunkDataMessage received;
+        while ((received = pending.poll()) != null) {
+            waiting.add(received);
+        }
+        val world = Minecraft.getMinecraft().theWorld;
+        if (world == null) {
+            // Disconnected, or switching worlds. The chunks will be sent in full.
+            waiting.clear();
+            return;
+        }
+        val iterator = waiting.iterator();
+        while (iterator.hasNext()) {
+            val message = iterator.next();
+            if (message.generation != count(arrivedFullChunks, message.chunkX, message.chunkZ)) {
+                // Full data of the chunk arrived after this update
+                iterator.remove();
+                outdated.increment();
+                continue;
+            }
+            if (count(appliedFullChunks, message.chunkX, message.chunkZ) < message.generation) {
+                // Full data that arrived before this update is still waiting in the vanilla packet queue. Later
+                // updates of the same chunk wait for the same packet, so they stay in order.
+                continue;
+            }
+            iterator.remove();
+            val chunk = world.getChunkFromChunkCoords(message.chunkX, message.chunkZ);
+            if (chunk instanceof EmptyChunk || !chunk.isChunkLoaded) {
+                // The chunk got unloaded in the meantime, it will be sent in full when it comes back.
+                continue;
+            }
+            val mask = DataRegistryImpl.readPartialFromBuffer(chunk, message.data);
+            if (mask != 0) {
+                val minY = Integer.numberOfTrailingZeros(mask) * 16;
+                val maxY = (32 - Integer.numberOfLeadingZeros(mask)) * 16 - 1;
+                val x = message.chunkX * 16;
+                val z = message.chunkZ * 16;
+                world.markBlockRangeForRenderUpdate(x, minY, z, x + 15, maxY, z + 15);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.Common;
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.mixin.helpers.CompressionHelper;
+import io.netty.buffer.ByteBuf;
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+
+import java.io.IOException;
+
+/**
+ * Carries the data of the managers marked dirty in a single chunk, see {@link DirtyChunkTracker}.
+ */
+@NoArgsConstructor
+public class PartialChunkDataMessage implements IMessage {
+    int chunkX;
+    int chunkZ;
+    byte[] data;
+    /**
+     * Client side, see {@link PartialChunkDataClient}
+     */
+    int generation;
+
+    public PartialChunkDataMessage(int chunkX, int chunkZ, byte[] data) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.data = data;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        chunkX = buf.readInt();
+        chunkZ = buf.readInt();
+        val length = ByteBufUtils.readVarInt(buf, 5);
+        val format = buf.readUnsignedByte();
+        val compressedSize = ByteBufUtils.readVarInt(buf, 5);
+        try {
+            val data = new byte[CompressionHelper.checkLength(length, DataRegistryImpl.maxPartialPacketSize())];
+            CompressionHelper.decompress(buf, format, compressedSize, new byte[][]{data});
+            this.data = data;
+        } catch (IOException e) {
+            Common.LOG.error("Failed to decompress partial chunk data for chunk " + chunkX + ", " + chunkZ, e);
+            this.data = null;
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        val compressed = CompressionHelper.compress(new byte[][]{data}, data.length, ProtocolFeatures.encodeFeatures());
+        buf.writeInt(chunkX);
+        buf.writeInt(chunkZ);
+        ByteBufUtils.writeVarInt(buf, data.length, 5);
+        buf.writeByte(compressed.format);
+        ByteBufUtils.writeVarInt(buf, compressed.length, 5);
+        buf.writeBytes(compressed.data, 0, compressed.length);
+    }
+
+    public static class Handler implements IMessageHandler<PartialChunkDataMessage, IMessage> {
+        @Override
+        public IMessage onMessage(PartialChunkDataMessage message, MessageContext ctx) {
+            if (message.data != null) {
+                // Runs on the netty thread, the chunk can only be touched from the client thread.
+                PartialChunkDataClient.enqueue(message);
+            }
+            return null;
+        }
+    }
+}
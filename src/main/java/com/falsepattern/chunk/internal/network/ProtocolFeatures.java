@@ -0,0 +1,195 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.network;
+
+import com.falsepattern.chunk.internal.DataRegistryImpl;
+import com.falsepattern.chunk.internal.ManagerSet;
+import com.falsepattern.chunk.internal.mixin.helpers.PresetDictionary;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import net.minecraft.network.NetworkManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Optional payload encodings, negotiated per connection. The client announces what it can decode in reply to the
+ * manager table, and the server only uses encodings every recipient of a payload understands.
+ * <p>
+ * Every chunk payload starts with the features it was written with, and the registry makes them available to the
+ * managers through {@link #active()} while they read or write their data.
+ * <p>
+ * The client also reports which of the server's managers it has, see {@link ManagerSet}. Payloads leave out the data of
+ * managers no recipient can use.
+ */
+public class ProtocolFeatures {
+    /**
+     * {@link com.falsepattern.chunk.internal.vanilla.BlockIDManager} sends paletted, bit-packed sections.
+     */
+    public static final int PALETTE_BLOCK_IDS = 1;
+
+    /**
+     * {@link com.falsepattern.chunk.internal.vanilla.NibbleManager}s send a single value for uniform subchunks.
+     */
+    public static final int UNIFORM_NIBBLES = 1 << 1;
+
+    /**
+     * Chunk packets can be deflated with the {@link PresetDictionary}. Only used if both sides have the same version.
+     */
+    public static final int PRESET_DICTIONARY = 1 << 2;
+
+    /**
+     * Everything this side can decode.
+     */
+    public static final int SUPPORTED = PALETTE_BLOCK_IDS | UNIFORM_NIBBLES | (PresetDictionary.isAvailable() ? PRESET_DICTIONARY : 0);
+
+    /**
+     * Assumed for a client that didn't reply yet. FML only lets clients with the same ChunkAPI version connect, so they
+     * decode everything except the dictionary, which depends on the resources the client has.
+     */
+    private static final int UNCONFIRMED = SUPPORTED & ~PRESET_DICTIONARY;
+
+    private static final Map<NetworkManager, Recipient> connections = new ConcurrentHashMap<>();
+    private static volatile int shared = SUPPORTED;
+    private static volatile ManagerSet sharedManagers;
+
+    private static final ThreadLocal<Context> context = ThreadLocal.withInitial(Context::new);
+
+    private static class Context {
+        Recipient target = null;
+        int active = 0;
+    }
+
+    /**
+     * What a single client can decode.
+     */
+    @RequiredArgsConstructor
+    public static final class Recipient {
+        public final int features;
+        public final ManagerSet managers;
+    }
+
+    /**
+     * Called on login. Until the client replies, the connection is treated as having every manager, and every feature
+     * except the dictionary, so logins don't make the payloads of everyone else fall back to the raw encodings.
+     */
+    static void addConnection(NetworkManager connection) {
+        connections.put(connection, new Recipient(UNCONFIRMED, DataRegistryImpl.allManagers()));
+        recomputeShared();
+    }
+
+    static void setFeatures(NetworkManager connection, int features, int dictionaryVersion, ManagerSet managers) {
+        if (dictionaryVersion != PresetDictionary.version()) {
+            features &= ~PRESET_DICTIONARY;
+        }
+        if (connections.replace(connection, new Recipient(features & SUPPORTED, managers)) != null) {
+            ConnectionContext.setManagers(connection.channel(), managers);
+            recomputeShared();
+        }
+    }
+
+    static void removeConnection(NetworkManager connection) {
+        connections.remove(connection);
+        recomputeShared();
+    }
+
+    private static synchronized void recomputeShared() {
+        int features = SUPPORTED;
+        ManagerSet managers = null;
+        for (val recipient : connections.values()) {
+            features &= recipient.features;
+            managers = managers == null ? recipient.managers : managers.union(recipient.managers);
+        }
+        shared = features;
+        sharedManagers = managers;
+    }
+
+    public static Recipient forConnection(NetworkManager connection) {
+        val recipient = connections.get(connection);
+        return recipient == null ? new Recipient(UNCONFIRMED, DataRegistryImpl.allManagers()) : recipient;
+    }
+
+    /**
+     * The features to encode with on this thread: the ones of the recipient set with {@link #beginTarget(int)}, or
+     * the ones all connected clients share.
+     */
+    public static int encodeFeatures() {
+        val target = context.get().target;
+        return target != null ? target.features : shared;
+    }
+
+    /**
+     * The managers to include on this thread: the ones of the recipient set with {@link #beginTarget(Recipient)}, or
+     * every manager at least one connected client has.
+     */
+    public static ManagerSet encodeManagers() {
+        val target = context.get().target;
+        if (target != null) {
+            return target.managers;
+        }
+        val managers = sharedManagers;
+        return managers != null ? managers : DataRegistryImpl.allManagers();
+    }
+
+    /**
+     * Sets the recipient of the packets created on this thread.
+     *
+     * @return The previous target, pass it to {@link #endTarget(Recipient)}.
+     */
+    public static Recipient beginTarget(Recipient recipient) {
+        val ctx = context.get();
+        val previous = ctx.target;
+        ctx.target = recipient;
+        return previous;
+    }
+
+    public static void endTarget(Recipient previous) {
+        context.get().target = previous;
+    }
+
+    /**
+     * The features of the payload currently being read or written on this thread.
+     */
+    public static int active() {
+        return context.get().active;
+    }
+
+    public static boolean isActive(int feature) {
+        return (active() & feature) != 0;
+    }
+
+    /**
+     * @return The previously active features, pass them to {@link #endActive(int)}.
+     */
+    public static int beginActive(int features) {
+        val ctx = context.get();
+        val previous = ctx.active;
+        ctx.active = features;
+        return previous;
+    }
+
+    public static void endActive(int previous) {
+        context.get().active = previous;
+    }
+}
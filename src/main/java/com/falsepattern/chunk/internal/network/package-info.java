@@ -20,11 +20,7 @@
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
 
-package com.falsepattern.chunk.internal.mixin.helpers;
+@ApiStatus.Internal
+package com.falsepattern.chunk.internal.network;
 
-import java.util.concurrent.locks.ReentrantLock;
-
-public class LockHelper {
-    public static final ReentrantLock bufferLockS21PacketChunkData = new ReentrantLock();
-    public static final ReentrantLock bufferLockS26PacketMapChunkBulk = new ReentrantLock();
-}
+import org.jetbrains.annotations.ApiStatus;
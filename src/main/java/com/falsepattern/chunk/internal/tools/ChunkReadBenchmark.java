@@ -0,0 +1,139 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.tools;
+
+import com.falsepattern.chunk.internal.mixin.helpers.StreamingChunkReader;
+import lombok.val;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.chunk.storage.RegionFile;
+import net.minecraftforge.common.util.Constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline tool that compares {@link StreamingChunkReader} against {@link CompressedStreamTools} on the chunks of a
+ * world. Needs the Minecraft and Forge classes on the classpath.
+ * <p>
+ * Usage: {@code ChunkReadBenchmark <region directory> [rounds]}
+ * <p>
+ * The chunks are decompressed up front, so only the NBT parsing and the subChunk array lookups of the vanilla managers
+ * are measured. Allocations are reported if the JVM supports per-thread allocation counters.
+ */
+public class ChunkReadBenchmark {
+    private static final String[] SECTION_ARRAYS = {"Blocks", "Add", "Data", "BlockLight", "SkyLight"};
+
+    private interface Reader {
+        NBTTagCompound read(DataInputStream input) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ChunkReadBenchmark <region directory> [rounds]");
+            System.exit(1);
+        }
+        val regionDir = new File(args[0]);
+        val rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        val files = regionDir.listFiles((dir, name) -> name.endsWith(".mca"));
+        if (files == null || files.length == 0) {
+            throw new IOException("No region files in " + regionDir);
+        }
+        val chunks = new ArrayList<byte[]>();
+        for (val file : files) {
+            val region = new RegionFile(file);
+            try {
+                for (int x = 0; x < 32; x++) {
+                    for (int z = 0; z < 32; z++) {
+                        if (!region.isChunkSaved(x, z)) {
+                            continue;
+                        }
+                        try (val input = region.getChunkDataInputStream(x, z)) {
+                            if (input != null) {
+                                chunks.add(readAll(input));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                region.close();
+            }
+        }
+        System.out.println("Loaded " + chunks.size() + " chunks from " + files.length + " region files");
+
+        for (int round = 0; round < rounds; round++) {
+            run("vanilla  ", chunks, CompressedStreamTools::read);
+            run("streaming", chunks, StreamingChunkReader::read);
+        }
+    }
+
+    private static void run(String name, List<byte[]> chunks, Reader reader) throws IOException {
+        val allocated = allocatedBytes();
+        val start = System.nanoTime();
+        long arrayBytes = 0;
+        for (val chunk : chunks) {
+            val root = reader.read(new DataInputStream(new ByteArrayInputStream(chunk)));
+            val sections = root.getCompoundTag("Level").getTagList("Sections", Constants.NBT.TAG_COMPOUND);
+            for (int i = 0; i < sections.tagCount(); i++) {
+                val section = sections.getCompoundTagAt(i);
+                for (val key : SECTION_ARRAYS) {
+                    arrayBytes += section.getByteArray(key).length;
+                }
+            }
+        }
+        val nanos = System.nanoTime() - start;
+        val bytes = allocatedBytes() - allocated;
+        System.out.printf("%s: %8.3f ms, %8.2f us/chunk, %s, %d array bytes%n",
+                          name,
+                          nanos / 1e6,
+                          nanos / 1e3 / chunks.size(),
+                          allocated < 0 ? "allocations unknown" : String.format("%d bytes/chunk allocated", bytes / chunks.size()),
+                          arrayBytes);
+    }
+
+    private static long allocatedBytes() {
+        val bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static byte[] readAll(DataInputStream input) throws IOException {
+        val output = new ByteArrayOutputStream();
+        val buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * ChunkAPI
+ *
+ * Copyright (C) 2023-2025 FalsePattern, The MEGA Team, LegacyModdingMC contributors
+ * All Rights Reserved
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, only version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.falsepattern.chunk.internal.tools;
+
+import lombok.val;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline tool that builds a chunk payload dictionary for {@link com.falsepattern.chunk.internal.mixin.helpers.PresetDictionary}
+ * from payloads captured on a running server.
+ * <p>
+ * Usage: {@code DictionaryBuilder <capture directory> <output file> <version 1-255> [size]}
+ * <p>
+ * Counts fixed size segments across all payloads, and fills the dictionary with the ones that cover the most bytes.
+ * The most valuable segments go last, zlib reaches the end of the dictionary with the shortest distances.
+ */
+public class DictionaryBuilder {
+    private static final int SEGMENT_SIZE = 32;
+    private static final int SEGMENT_STEP = 8;
+    // zlib only looks back 32KiB
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: DictionaryBuilder <capture directory> <output file> <version 1-255> [size]");
+            System.exit(1);
+        }
+        val captureDir = new File(args[0]);
+        val output = new File(args[1]);
+        val version = Integer.parseInt(args[2]);
+        if (version < 1 || version > 255) {
+            throw new IllegalArgumentException("Version must be between 1 and 255");
+        }
+        val size = args.length > 3 ? Math.min(Integer.parseInt(args[3]), MAX_DICTIONARY_SIZE) : MAX_DICTIONARY_SIZE;
+
+        val files = captureDir.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (files == null || files.length == 0) {
+            throw new IOException("No captured payloads in " + captureDir);
+        }
+        // Latin-1 maps every byte to one char, so segments can be used as map keys directly
+        val counts = new HashMap<String, Integer>();
+        for (val file : files) {
+            val payload = Files.readAllBytes(file.toPath());
+            // Only count every segment once per payload, a run inside a single payload is compressed fine without help
+            val seen = new HashSet<String>();
+            for (int i = 0; i + SEGMENT_SIZE <= payload.length; i += SEGMENT_STEP) {
+                val segment = new String(payload, i, SEGMENT_SIZE, StandardCharsets.ISO_8859_1);
+                if (seen.add(segment)) {
+                    counts.merge(segment, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> segments = new ArrayList<>(counts.entrySet());
+        segments.removeIf(entry -> entry.getValue() < 2);
+        segments.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        if (segments.size() * SEGMENT_SIZE > size) {
+            segments = segments.subList(0, size / SEGMENT_SIZE);
+        }
+        Collections.reverse(segments);
+
+        val dictionary = new ByteArrayOutputStream(1 + size);
+        dictionary.write(version);
+        for (val segment : segments) {
+            val bytes = segment.getKey().getBytes(StandardCharsets.ISO_8859_1);
+            dictionary.write(bytes, 0, bytes.length);
+        }
+        Files.write(output.toPath(), dictionary.toByteArray());
+        System.out.println("Wrote " + (dictionary.size() - 1) + " byte dictionary version " + version + " from " + files.length + " payloads to " + output);
+    }
+}
@@ -44,6 +44,16 @@ public class BiomeManager extends VanillaManager implements DataManager.PacketDa
         return BYTES_PER_CHUNK;
     }
 
+    @Override
+    public int packetSize(@NotNull Chunk chunk, int subChunkMask, boolean forceUpdate) {
+        return forceUpdate ? chunk.getBiomeArray().length : 0;
+    }
+
+    @Override
+    public boolean stampedPacketData() {
+        return true;
+    }
+
     @Override
     public void writeToBuffer(@NotNull Chunk chunk, int subChunkMask, boolean forceUpdate, @NotNull ByteBuffer buffer) {
         if (forceUpdate) {
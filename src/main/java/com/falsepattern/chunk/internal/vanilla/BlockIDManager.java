@@ -23,8 +23,13 @@
 package com.falsepattern.chunk.internal.vanilla;
 
 import com.falsepattern.chunk.api.ArrayUtil;
+import com.falsepattern.chunk.api.BlockChangeBatch;
 import com.falsepattern.chunk.api.DataManager;
+import com.falsepattern.chunk.internal.impl.StampedSubChunk;
+import com.falsepattern.chunk.internal.mixin.helpers.PayloadCache;
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
 import lombok.val;
+import lombok.var;
 
 import net.minecraft.block.Block;
 import net.minecraft.nbt.NBTTagCompound;
@@ -36,15 +41,34 @@ import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static com.falsepattern.chunk.internal.Common.BLOCKS_PER_SUBCHUNK;
 import static com.falsepattern.chunk.internal.Common.SUBCHUNKS_PER_CHUNK;
 
-public class BlockIDManager extends VanillaManager implements DataManager.PacketDataManager, DataManager.CubicPacketDataManager, DataManager.BlockPacketDataManager, DataManager.SubChunkDataManager {
+public class BlockIDManager extends VanillaManager implements DataManager.PacketDataManager, DataManager.CubicPacketDataManager, DataManager.BulkBlockPacketDataManager, DataManager.SubChunkDataManager {
     private static final int LSB_BYTES_PER_SUBCHUNK = BLOCKS_PER_SUBCHUNK;
     private static final int MSB_BYTES_PER_SUBCHUNK = BLOCKS_PER_SUBCHUNK / 2;
     private static final int HEADER_SIZE = 2;
 
+    // Section encodings used with ProtocolFeatures.PALETTE_BLOCK_IDS. Modes 1, 2, 4 and 8 are the palette index bits.
+    private static final int MODE_UNIFORM = 0;
+    private static final int MODE_RAW = 16;
+    private static final int MODE_RAW_MSB = 17;
+    private static final int MAX_PALETTE_SIZE = 256;
+    private static final int MAX_PALETTED_SUBCHUNK_SIZE = 1 + 1 + LSB_BYTES_PER_SUBCHUNK + MSB_BYTES_PER_SUBCHUNK;
+
+    private static final ThreadLocal<PaletteScratch> paletteScratch = ThreadLocal.withInitial(PaletteScratch::new);
+
+    private static class PaletteScratch {
+        final int[] ids = new int[BLOCKS_PER_SUBCHUNK];
+        final int[] palette = new int[MAX_PALETTE_SIZE];
+        // Indexed by block id. An entry is only valid if its stamp matches the current one, so nothing needs clearing.
+        final int[] paletteIndex = new int[1 << 12];
+        final int[] paletteStamp = new int[1 << 12];
+        int stamp;
+    }
+
     @Override
     public String id() {
         return "blockid";
@@ -52,12 +76,50 @@ public class BlockIDManager extends VanillaManager implements DataManager.Packet
 
     @Override
     public int maxPacketSize() {
-        return HEADER_SIZE + SUBCHUNKS_PER_CHUNK * (LSB_BYTES_PER_SUBCHUNK + MSB_BYTES_PER_SUBCHUNK);
+        return Math.max(HEADER_SIZE + SUBCHUNKS_PER_CHUNK * (LSB_BYTES_PER_SUBCHUNK + MSB_BYTES_PER_SUBCHUNK),
+                        SUBCHUNKS_PER_CHUNK * MAX_PALETTED_SUBCHUNK_SIZE);
+    }
+
+    @Override
+    public int packetSize(Chunk chunk, int subChunkMask, boolean forceUpdate) {
+        val subChunks = chunk.getBlockStorageArray();
+        if (ProtocolFeatures.isActive(ProtocolFeatures.PALETTE_BLOCK_IDS)) {
+            int size = 0;
+            for (int i = 0; i < subChunks.length; i++) {
+                if ((subChunkMask & (1 << i)) != 0) {
+                    size += palettedSize(subChunks[i]);
+                }
+            }
+            return size;
+        }
+        int size = HEADER_SIZE;
+        for (int i = 0; i < subChunks.length; i++) {
+            if ((subChunkMask & (1 << i)) != 0) {
+                size += LSB_BYTES_PER_SUBCHUNK;
+                if (subChunks[i].getBlockMSBArray() != null) {
+                    size += MSB_BYTES_PER_SUBCHUNK;
+                }
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean stampedPacketData() {
+        return true;
     }
 
     @Override
     public void writeToBuffer(Chunk chunk, int subChunkMask, boolean forceUpdate, ByteBuffer buffer) {
         val subChunks = chunk.getBlockStorageArray();
+        if (ProtocolFeatures.isActive(ProtocolFeatures.PALETTE_BLOCK_IDS)) {
+            for (int i = 0; i < subChunks.length; i++) {
+                if ((subChunkMask & (1 << i)) != 0) {
+                    writeSubChunkPaletted(subChunks[i], buffer);
+                }
+            }
+            return;
+        }
         int currentPos = buffer.position();
         buffer.putShort((short) 0);
         int msbMask = 0;
@@ -82,6 +144,14 @@ public class BlockIDManager extends VanillaManager implements DataManager.Packet
     @Override
     public void readFromBuffer(Chunk chunk, int subChunkMask, boolean forceUpdate, ByteBuffer buffer) {
         val subChunks = chunk.getBlockStorageArray();
+        if (ProtocolFeatures.isActive(ProtocolFeatures.PALETTE_BLOCK_IDS)) {
+            for (int i = 0; i < subChunks.length; i++) {
+                if ((subChunkMask & (1 << i)) != 0) {
+                    readSubChunkPaletted(subChunks[i], buffer);
+                }
+            }
+            return;
+        }
         val msbMask = buffer.getShort() & 0xFFFF;
         for (int i = 0; i < subChunks.length; i++) {
             val subChunk = subChunks[i];
@@ -102,11 +172,15 @@ public class BlockIDManager extends VanillaManager implements DataManager.Packet
 
     @Override
     public int maxPacketSizeCubic() {
-        return HEADER_SIZE + LSB_BYTES_PER_SUBCHUNK + MSB_BYTES_PER_SUBCHUNK;
+        return Math.max(HEADER_SIZE + LSB_BYTES_PER_SUBCHUNK + MSB_BYTES_PER_SUBCHUNK, MAX_PALETTED_SUBCHUNK_SIZE);
     }
 
     @Override
     public void writeToBuffer(Chunk chunk, ExtendedBlockStorage blockStorage, ByteBuffer buffer) {
+        if (ProtocolFeatures.isActive(ProtocolFeatures.PALETTE_BLOCK_IDS)) {
+            writeSubChunkPaletted(blockStorage, buffer);
+            return;
+        }
         buffer.put(blockStorage.getBlockLSBArray());
 
         if (blockStorage.getBlockMSBArray() != null) {
@@ -119,6 +193,10 @@ public class BlockIDManager extends VanillaManager implements DataManager.Packet
 
     @Override
     public void readFromBuffer(Chunk chunk, ExtendedBlockStorage blockStorage, ByteBuffer buffer) {
+        if (ProtocolFeatures.isActive(ProtocolFeatures.PALETTE_BLOCK_IDS)) {
+            readSubChunkPaletted(blockStorage, buffer);
+            return;
+        }
         buffer.get(blockStorage.getBlockLSBArray());
 
         if (buffer.get() != 0) {
@@ -130,11 +208,222 @@ public class BlockIDManager extends VanillaManager implements DataManager.Packet
         }
     }
 
+    /**
+     * Fills the palette of the scratch with the distinct ids of the subchunk, and the ids array with every id.
+     *
+     * @return The palette size, or -1 if there are more than {@link #MAX_PALETTE_SIZE} distinct ids.
+     */
+    private static int buildPalette(byte[] lsb, byte[] msb, PaletteScratch scratch) {
+        val ids = scratch.ids;
+        val palette = scratch.palette;
+        val paletteIndex = scratch.paletteIndex;
+        val paletteStamp = scratch.paletteStamp;
+        int stamp = ++scratch.stamp;
+        if (stamp == 0) {
+            Arrays.fill(paletteStamp, 0);
+            stamp = scratch.stamp = 1;
+        }
+        int paletteSize = 0;
+        for (int i = 0; i < BLOCKS_PER_SUBCHUNK; i++) {
+            int id = lsb[i] & 0xFF;
+            if (msb != null) {
+                id |= ((msb[i >> 1] >> ((i & 1) << 2)) & 0xF) << 8;
+            }
+            ids[i] = id;
+            if (paletteStamp[id] != stamp) {
+                if (paletteSize == MAX_PALETTE_SIZE) {
+                    return -1;
+                }
+                paletteStamp[id] = stamp;
+                paletteIndex[id] = paletteSize;
+                palette[paletteSize++] = id;
+            }
+        }
+        return paletteSize;
+    }
+
+    private static int paletteBits(int paletteSize) {
+        return paletteSize <= 2 ? 1 : paletteSize <= 4 ? 2 : paletteSize <= 16 ? 4 : 8;
+    }
+
+    /**
+     * @return True if the palette is smaller than the raw arrays.
+     */
+    private static boolean usePalette(int paletteSize, boolean hasMsb) {
+        val packedSize = BLOCKS_PER_SUBCHUNK * paletteBits(paletteSize) / 8;
+        val rawSize = LSB_BYTES_PER_SUBCHUNK + (hasMsb ? MSB_BYTES_PER_SUBCHUNK : 0);
+        return paletteSize > 0 && 1 + paletteSize * 2 + packedSize < rawSize;
+    }
+
+    /**
+     * @return The exact size {@link #writeSubChunkPaletted} writes. Remembered until the subchunk changes.
+     */
+    private static int palettedSize(ExtendedBlockStorage subChunk) {
+        val stamped = (StampedSubChunk) subChunk;
+        val stamp = PayloadCache.stampOf(subChunk);
+        var size = stamped.chunkapi$palettedSize(stamp);
+        if (size >= 0) {
+            return size;
+        }
+        val msbArray = subChunk.getBlockMSBArray();
+        val msb = msbArray == null ? null : msbArray.data;
+        val paletteSize = buildPalette(subChunk.getBlockLSBArray(), msb, paletteScratch.get());
+        if (paletteSize == 1) {
+            size = 1 + 2;
+        } else if (usePalette(paletteSize, msb != null)) {
+            size = 2 + paletteSize * 2 + BLOCKS_PER_SUBCHUNK * paletteBits(paletteSize) / 8;
+        } else {
+            size = 1 + LSB_BYTES_PER_SUBCHUNK + (msb != null ? MSB_BYTES_PER_SUBCHUNK : 0);
+        }
+        stamped.chunkapi$setPalettedSize(stamp, size);
+        return size;
+    }
+
+    /**
+     * Writes a single value for uniform subchunks, a palette with 1, 2, 4 or 8 bit indices if that's smaller than the
+     * raw arrays, and the raw arrays otherwise.
+     */
+    private static void writeSubChunkPaletted(ExtendedBlockStorage subChunk, ByteBuffer buffer) {
+        val lsb = subChunk.getBlockLSBArray();
+        val msbArray = subChunk.getBlockMSBArray();
+        val msb = msbArray == null ? null : msbArray.data;
+        val scratch = paletteScratch.get();
+        val ids = scratch.ids;
+        val palette = scratch.palette;
+        val paletteIndex = scratch.paletteIndex;
+        val paletteSize = buildPalette(lsb, msb, scratch);
+        if (paletteSize == 1) {
+            buffer.put((byte) MODE_UNIFORM);
+            buffer.putShort((short) palette[0]);
+            return;
+        }
+        if (!usePalette(paletteSize, msb != null)) {
+            writeSubChunkRaw(lsb, msb, buffer);
+            return;
+        }
+        val bits = paletteBits(paletteSize);
+        buffer.put((byte) bits);
+        buffer.put((byte) (paletteSize - 1));
+        for (int i = 0; i < paletteSize; i++) {
+            buffer.putShort((short) palette[i]);
+        }
+        val perByte = 8 / bits;
+        for (int i = 0; i < BLOCKS_PER_SUBCHUNK; i += perByte) {
+            int packed = 0;
+            for (int j = 0; j < perByte; j++) {
+                packed |= paletteIndex[ids[i + j]] << (j * bits);
+            }
+            buffer.put((byte) packed);
+        }
+    }
+
+    private static void writeSubChunkRaw(byte[] lsb, byte[] msb, ByteBuffer buffer) {
+        buffer.put((byte) (msb != null ? MODE_RAW_MSB : MODE_RAW));
+        buffer.put(lsb);
+        if (msb != null) {
+            buffer.put(msb);
+        }
+    }
+
+    private static void readSubChunkPaletted(ExtendedBlockStorage subChunk, ByteBuffer buffer) {
+        val mode = buffer.get() & 0xFF;
+        if (subChunk == null) {
+            skipSubChunkPaletted(mode, buffer);
+            return;
+        }
+        val lsb = subChunk.getBlockLSBArray();
+        switch (mode) {
+            case MODE_UNIFORM: {
+                val id = buffer.getShort() & 0xFFF;
+                Arrays.fill(lsb, (byte) id);
+                val msbValue = id >>> 8;
+                if (msbValue == 0) {
+                    subChunk.setBlockMSBArray(null);
+                } else {
+                    Arrays.fill(msbArray(subChunk), (byte) (msbValue | (msbValue << 4)));
+                }
+                return;
+            }
+            case MODE_RAW:
+                buffer.get(lsb);
+                subChunk.setBlockMSBArray(null);
+                return;
+            case MODE_RAW_MSB:
+                buffer.get(lsb);
+                buffer.get(msbArray(subChunk));
+                return;
+            case 1:
+            case 2:
+            case 4:
+            case 8:
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown block id subchunk encoding " + mode);
+        }
+        val bits = mode;
+        val paletteSize = (buffer.get() & 0xFF) + 1;
+        val palette = paletteScratch.get().palette;
+        boolean hasMsb = false;
+        for (int i = 0; i < paletteSize; i++) {
+            val id = buffer.getShort() & 0xFFF;
+            palette[i] = id;
+            hasMsb |= id > 0xFF;
+        }
+        val perByte = 8 / bits;
+        val indexMask = (1 << bits) - 1;
+        val msb = hasMsb ? msbArray(subChunk) : null;
+        if (!hasMsb) {
+            subChunk.setBlockMSBArray(null);
+        }
+        for (int i = 0; i < BLOCKS_PER_SUBCHUNK; i += perByte) {
+            val packed = buffer.get() & 0xFF;
+            for (int j = 0; j < perByte; j++) {
+                val id = palette[(packed >>> (j * bits)) & indexMask];
+                val index = i + j;
+                lsb[index] = (byte) id;
+                if (msb != null) {
+                    val shift = (index & 1) << 2;
+                    msb[index >> 1] = (byte) ((msb[index >> 1] & ~(0xF << shift)) | (((id >>> 8) & 0xF) << shift));
+                }
+            }
+        }
+    }
+
+    private static void skipSubChunkPaletted(int mode, ByteBuffer buffer) {
+        switch (mode) {
+            case MODE_UNIFORM:
+                buffer.position(buffer.position() + 2);
+                break;
+            case MODE_RAW:
+                buffer.position(buffer.position() + LSB_BYTES_PER_SUBCHUNK);
+                break;
+            case MODE_RAW_MSB:
+                buffer.position(buffer.position() + LSB_BYTES_PER_SUBCHUNK + MSB_BYTES_PER_SUBCHUNK);
+                break;
+            default:
+                val paletteSize = (buffer.get() & 0xFF) + 1;
+                buffer.position(buffer.position() + paletteSize * 2 + BLOCKS_PER_SUBCHUNK * mode / 8);
+                break;
+        }
+    }
+
+    private static byte[] msbArray(ExtendedBlockStorage subChunk) {
+        if (subChunk.getBlockMSBArray() == null) {
+            subChunk.createBlockMSBArray();
+        }
+        return subChunk.getBlockMSBArray().data;
+    }
+
     @Override
     public boolean subChunkPrivilegedAccess() {
         return true;
     }
 
+    @Override
+    public boolean concurrentSubChunkReads() {
+        return true;
+    }
+
     @Override
     public void writeSubChunkToNBT(Chunk chunk, ExtendedBlockStorage subChunk, NBTTagCompound nbt) {
         nbt.setByteArray("Blocks", subChunk.getBlockLSBArray());
@@ -159,6 +448,18 @@ public class BlockIDManager extends VanillaManager implements DataManager.Packet
         to.setBlockMSBArray(ArrayUtil.copyArray(from.getBlockMSBArray(), to.getBlockMSBArray()));
     }
 
+    @Override
+    public void shareSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
+        to.setBlockLSBArray(from.getBlockLSBArray());
+        to.setBlockMSBArray(from.getBlockMSBArray());
+    }
+
+    @Override
+    public void unshareSubChunk(ExtendedBlockStorage subChunk) {
+        subChunk.setBlockLSBArray(ArrayUtil.copyArray(subChunk.getBlockLSBArray(), null));
+        subChunk.setBlockMSBArray(ArrayUtil.copyArray(subChunk.getBlockMSBArray(), null));
+    }
+
     @Override
     public void writeBlockToPacket(Chunk chunk, int x, int y, int z, S23PacketBlockChange packet) {
     }
@@ -177,4 +478,28 @@ public class BlockIDManager extends VanillaManager implements DataManager.Packet
     public void readBlockPacketFromBuffer(S23PacketBlockChange packet, PacketBuffer buffer) throws IOException {
         packet.field_148883_d = Block.getBlockById(buffer.readUnsignedShort() & 0xFFF);
     }
+
+    @Override
+    public void writeBlocksToBatch(Chunk chunk, BlockChangeBatch batch) {
+    }
+
+    @Override
+    public void readBlocksFromBatch(Chunk chunk, BlockChangeBatch batch) {
+    }
+
+    @Override
+    public void writeBatchToBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        int size = batch.size();
+        for (int i = 0; i < size; i++) {
+            buffer.writeShort(Block.getIdFromBlock(batch.block(i)) & 0xFFF);
+        }
+    }
+
+    @Override
+    public void readBatchFromBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        int size = batch.size();
+        for (int i = 0; i < size; i++) {
+            batch.setBlock(i, Block.getBlockById(buffer.readUnsignedShort() & 0xFFF));
+        }
+    }
 }
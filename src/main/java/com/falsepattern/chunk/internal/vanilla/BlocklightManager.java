@@ -46,6 +46,11 @@ public class BlocklightManager extends NibbleManager implements DataManager.SubC
         return true;
     }
 
+    @Override
+    public boolean concurrentSubChunkReads() {
+        return true;
+    }
+
     @Override
     public void writeSubChunkToNBT(Chunk chunk, ExtendedBlockStorage subChunk, NBTTagCompound nbt) {
         nbt.setByteArray("BlockLight", subChunk.getBlocklightArray().data);
@@ -58,6 +63,16 @@ public class BlocklightManager extends NibbleManager implements DataManager.SubC
 
     @Override
     public void cloneSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
-        from.setBlocklightArray(ArrayUtil.copyArray(from.getBlocklightArray(), to.getBlocklightArray()));
+        to.setBlocklightArray(ArrayUtil.copyArray(from.getBlocklightArray(), to.getBlocklightArray()));
+    }
+
+    @Override
+    public void shareSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
+        to.setBlocklightArray(from.getBlocklightArray());
+    }
+
+    @Override
+    public void unshareSubChunk(ExtendedBlockStorage subChunk) {
+        subChunk.setBlocklightArray(ArrayUtil.copyArray(subChunk.getBlocklightArray(), null));
     }
 }
@@ -23,6 +23,7 @@
 package com.falsepattern.chunk.internal.vanilla;
 
 import com.falsepattern.chunk.api.ArrayUtil;
+import com.falsepattern.chunk.api.BlockChangeBatch;
 import com.falsepattern.chunk.api.DataManager;
 
 import net.minecraft.nbt.NBTTagCompound;
@@ -34,7 +35,7 @@ import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 import java.io.IOException;
 
-public class MetadataManager extends NibbleManager implements DataManager.BlockPacketDataManager, DataManager.SubChunkDataManager {
+public class MetadataManager extends NibbleManager implements DataManager.BulkBlockPacketDataManager, DataManager.SubChunkDataManager {
     @Override
     protected NibbleArray getNibbleArray(ExtendedBlockStorage subChunk) {
         return subChunk.getMetadataArray();
@@ -50,6 +51,11 @@ public class MetadataManager extends NibbleManager implements DataManager.BlockP
         return true;
     }
 
+    @Override
+    public boolean concurrentSubChunkReads() {
+        return true;
+    }
+
     @Override
     public void writeSubChunkToNBT(Chunk chunk, ExtendedBlockStorage subChunk, NBTTagCompound nbt) {
         nbt.setByteArray("Data", subChunk.getMetadataArray().data);
@@ -65,6 +71,16 @@ public class MetadataManager extends NibbleManager implements DataManager.BlockP
         to.setBlockMetadataArray(ArrayUtil.copyArray(from.getMetadataArray(), to.getMetadataArray()));
     }
 
+    @Override
+    public void shareSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
+        to.setBlockMetadataArray(from.getMetadataArray());
+    }
+
+    @Override
+    public void unshareSubChunk(ExtendedBlockStorage subChunk) {
+        subChunk.setBlockMetadataArray(ArrayUtil.copyArray(subChunk.getMetadataArray(), null));
+    }
+
     @Override
     public void writeBlockToPacket(Chunk chunk, int x, int y, int z, S23PacketBlockChange packet) {
     }
@@ -82,4 +98,39 @@ public class MetadataManager extends NibbleManager implements DataManager.BlockP
     public void readBlockPacketFromBuffer(S23PacketBlockChange packet, PacketBuffer buffer) throws IOException {
         packet.field_148884_e = buffer.readUnsignedByte() & 0xF;
     }
+
+    @Override
+    public void writeBlocksToBatch(Chunk chunk, BlockChangeBatch batch) {
+    }
+
+    @Override
+    public void readBlocksFromBatch(Chunk chunk, BlockChangeBatch batch) {
+    }
+
+    /**
+     * Two entries per byte, low nibble first.
+     */
+    @Override
+    public void writeBatchToBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        int size = batch.size();
+        for (int i = 0; i < size; i += 2) {
+            int packed = batch.metadata(i) & 0xF;
+            if (i + 1 < size) {
+                packed |= (batch.metadata(i + 1) & 0xF) << 4;
+            }
+            buffer.writeByte(packed);
+        }
+    }
+
+    @Override
+    public void readBatchFromBuffer(BlockChangeBatch batch, PacketBuffer buffer) throws IOException {
+        int size = batch.size();
+        for (int i = 0; i < size; i += 2) {
+            int packed = buffer.readUnsignedByte();
+            batch.setMetadata(i, packed & 0xF);
+            if (i + 1 < size) {
+                batch.setMetadata(i + 1, packed >>> 4);
+            }
+        }
+    }
 }
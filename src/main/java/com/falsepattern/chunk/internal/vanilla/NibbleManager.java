@@ -24,6 +24,7 @@ package com.falsepattern.chunk.internal.vanilla;
 
 import com.falsepattern.chunk.api.DataManager;
 import com.falsepattern.chunk.internal.Common;
+import com.falsepattern.chunk.internal.network.ProtocolFeatures;
 import lombok.val;
 
 import net.minecraft.world.chunk.Chunk;
@@ -31,15 +32,43 @@ import net.minecraft.world.chunk.NibbleArray;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public abstract class NibbleManager extends VanillaManager implements DataManager.PacketDataManager, DataManager.CubicPacketDataManager {
     public static final int BYTES_PER_SUBCHUNK = Common.BLOCKS_PER_SUBCHUNK / 2;
+    // Subchunk header used with ProtocolFeatures.UNIFORM_NIBBLES. 0-15 is the value of a uniform subchunk.
+    private static final int RAW = 0xFF;
+    private static final int UNIFORM_CHECK_BLOCK = 64;
 
     protected abstract NibbleArray getNibbleArray(ExtendedBlockStorage subChunk);
 
     @Override
     public int maxPacketSize() {
-        return Common.SUBCHUNKS_PER_CHUNK * BYTES_PER_SUBCHUNK;
+        return Common.SUBCHUNKS_PER_CHUNK * (1 + BYTES_PER_SUBCHUNK);
+    }
+
+    @Override
+    public int packetSize(Chunk chunk, int subChunkMask, boolean forceUpdate) {
+        val uniformNibbles = ProtocolFeatures.isActive(ProtocolFeatures.UNIFORM_NIBBLES);
+        val subChunks = chunk.getBlockStorageArray();
+        int size = 0;
+        for (int i = 0; i < subChunks.length; i++) {
+            if ((subChunkMask & (1 << i)) != 0 && subChunks[i] != null) {
+                if (!uniformNibbles) {
+                    size += BYTES_PER_SUBCHUNK;
+                } else if (isUniform(getNibbleArray(subChunks[i]).data)) {
+                    size += 1;
+                } else {
+                    size += 1 + BYTES_PER_SUBCHUNK;
+                }
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean stampedPacketData() {
+        return true;
     }
 
     @Override
@@ -49,7 +78,7 @@ public abstract class NibbleManager extends VanillaManager implements DataManage
             if ((subChunkMask & (1 << i)) != 0) {
                 val subChunk = subChunks[i];
                 if (subChunk != null) {
-                    buffer.put(getNibbleArray(subChunk).data, 0, BYTES_PER_SUBCHUNK);
+                    writeSubChunk(getNibbleArray(subChunk).data, buffer);
                 }
             }
         }
@@ -62,7 +91,7 @@ public abstract class NibbleManager extends VanillaManager implements DataManage
             if ((subChunkMask & (1 << i)) != 0) {
                 val subChunk = subChunks[i];
                 if (subChunk != null) {
-                    buffer.get(getNibbleArray(subChunk).data, 0, BYTES_PER_SUBCHUNK);
+                    readSubChunk(getNibbleArray(subChunk).data, buffer);
                 }
             }
         }
@@ -70,16 +99,60 @@ public abstract class NibbleManager extends VanillaManager implements DataManage
 
     @Override
     public int maxPacketSizeCubic() {
-        return BYTES_PER_SUBCHUNK;
+        return 1 + BYTES_PER_SUBCHUNK;
     }
 
     @Override
     public void writeToBuffer(Chunk chunk, ExtendedBlockStorage blockStorage, ByteBuffer buffer) {
-        buffer.put(getNibbleArray(blockStorage).data, 0, BYTES_PER_SUBCHUNK);
+        writeSubChunk(getNibbleArray(blockStorage).data, buffer);
     }
 
     @Override
     public void readFromBuffer(Chunk chunk, ExtendedBlockStorage blockStorage, ByteBuffer buffer) {
-        buffer.get(getNibbleArray(blockStorage).data, 0, BYTES_PER_SUBCHUNK);
+        readSubChunk(getNibbleArray(blockStorage).data, buffer);
+    }
+
+    private static void writeSubChunk(byte[] data, ByteBuffer buffer) {
+        if (!ProtocolFeatures.isActive(ProtocolFeatures.UNIFORM_NIBBLES)) {
+            buffer.put(data, 0, BYTES_PER_SUBCHUNK);
+            return;
+        }
+        if (isUniform(data)) {
+            buffer.put((byte) (data[0] & 0xF));
+        } else {
+            buffer.put((byte) RAW);
+            buffer.put(data, 0, BYTES_PER_SUBCHUNK);
+        }
+    }
+
+    private static void readSubChunk(byte[] data, ByteBuffer buffer) {
+        if (!ProtocolFeatures.isActive(ProtocolFeatures.UNIFORM_NIBBLES)) {
+            buffer.get(data, 0, BYTES_PER_SUBCHUNK);
+            return;
+        }
+        val header = buffer.get() & 0xFF;
+        if (header == RAW) {
+            buffer.get(data, 0, BYTES_PER_SUBCHUNK);
+        } else {
+            Arrays.fill(data, 0, BYTES_PER_SUBCHUNK, (byte) (header | (header << 4)));
+        }
+    }
+
+    /**
+     * Checks the array in fixed size blocks, each one a branch free OR over the differences, which the JIT can turn
+     * into SIMD code. Mixed subchunks usually bail out within the first block.
+     */
+    private static boolean isUniform(byte[] data) {
+        val value = (byte) ((data[0] & 0xF) | (data[0] << 4));
+        for (int i = 0; i < BYTES_PER_SUBCHUNK; i += UNIFORM_CHECK_BLOCK) {
+            int diff = 0;
+            for (int j = i; j < i + UNIFORM_CHECK_BLOCK; j++) {
+                diff |= data[j] ^ value;
+            }
+            if (diff != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 }
@@ -43,6 +43,14 @@ public class SkylightManager extends NibbleManager implements DataManager.SubChu
         return subChunk.getSkylightArray();
     }
 
+    @Override
+    public int packetSize(Chunk chunk, int subChunkMask, boolean forceUpdate) {
+        if (!chunk.worldObj.provider.hasNoSky) {
+            return super.packetSize(chunk, subChunkMask, forceUpdate);
+        }
+        return 0;
+    }
+
     @Override
     public void writeToBuffer(Chunk chunk, int subChunkMask, boolean forceUpdate, ByteBuffer buffer) {
         if (!chunk.worldObj.provider.hasNoSky) {
@@ -62,6 +70,11 @@ public class SkylightManager extends NibbleManager implements DataManager.SubChu
         return true;
     }
 
+    @Override
+    public boolean concurrentSubChunkReads() {
+        return true;
+    }
+
     @Override
     public void writeSubChunkToNBT(Chunk chunk, ExtendedBlockStorage subChunk, NBTTagCompound nbt) {
         if (!chunk.worldObj.provider.hasNoSky) {
@@ -86,4 +99,18 @@ public class SkylightManager extends NibbleManager implements DataManager.SubChu
             to.setSkylightArray(null);
         }
     }
+
+    @Override
+    public void shareSubChunk(Chunk fromChunk, ExtendedBlockStorage from, ExtendedBlockStorage to) {
+        if (!fromChunk.worldObj.provider.hasNoSky) {
+            to.setSkylightArray(from.getSkylightArray());
+        } else {
+            to.setSkylightArray(null);
+        }
+    }
+
+    @Override
+    public void unshareSubChunk(ExtendedBlockStorage subChunk) {
+        subChunk.setSkylightArray(ArrayUtil.copyArray(subChunk.getSkylightArray(), null));
+    }
 }